@@ -4,12 +4,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.gmail.inverseconduit.commands.CommandQuota;
 import com.gmail.inverseconduit.datatype.CredentialsProvider;
+import com.gmail.inverseconduit.scripts.CompileMode;
+import com.gmail.inverseconduit.scripts.SandboxMode;
 
 /**
  * Holds environment settings, such as the bot's login credentials.
@@ -20,10 +25,20 @@ public class BotConfig implements CredentialsProvider {
 
     private final String        loginEmail, password, trigger;
 
-    private final Path          javadocs;
+    private final Path          javadocs, javadocUsage, loadedScripts, scriptWarmup;
 
     private final List<Integer> rooms;
 
+    private final CommandQuota  defaultQuota;
+
+    private final Map<String, CommandQuota> commandQuotas;
+
+    private final int           javadocCacheSize, javadocWarmup, scriptWorkers, scriptWorkerEvals, scriptWorkerHeap, scriptWarmupRounds;
+
+    private final CompileMode   compileMode;
+
+    private final SandboxMode   sandboxMode;
+
     /**
      * @param properties
      *        the properties file to pull the settings from
@@ -42,6 +57,16 @@ public class BotConfig implements CredentialsProvider {
         javadocs = Paths.get(value);
         LOGGER.info("Setting javadocs dir to " + javadocs);
 
+        javadocCacheSize = parseInt(properties, "JAVADOC-CACHE-SIZE", 32);
+        LOGGER.info("Setting javadoc cache size to " + javadocCacheSize + "MB");
+
+        value = properties.getProperty("JAVADOC-USAGE", "javadoc-usage.txt").trim();
+        javadocUsage = value.isEmpty() ? null : Paths.get(value);
+        LOGGER.info("Setting javadoc usage file to " + javadocUsage);
+
+        javadocWarmup = parseInt(properties, "JAVADOC-WARMUP", 50);
+        LOGGER.info("Setting javadoc warmup classes to " + javadocWarmup);
+
         value = properties.getProperty("ROOMS", "1"); //default to "Sandbox"
         List<Integer> rooms = new ArrayList<>();
         for (String v : value.split("\\s*,\\s*")) { //split by comma
@@ -54,6 +79,91 @@ public class BotConfig implements CredentialsProvider {
         }
         this.rooms = Collections.unmodifiableList(rooms);
         LOGGER.info("Setting rooms to " + rooms);
+
+        value = properties.getProperty("RATE-LIMIT", "10,30,60");
+        CommandQuota defaultQuota;
+        try {
+            defaultQuota = value.trim().isEmpty() ? null : CommandQuota.parse(value);
+        } catch(IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Unparsable default rate limit, commands will not be limited.", e);
+            defaultQuota = null;
+        }
+        this.defaultQuota = defaultQuota;
+        LOGGER.info("Setting default rate limit to " + defaultQuota);
+
+        Map<String, CommandQuota> commandQuotas = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if ( !key.startsWith("RATE-LIMIT.")) {
+                continue;
+            }
+
+            String command = key.substring("RATE-LIMIT.".length());
+            try {
+                commandQuotas.put(command, CommandQuota.parse(properties.getProperty(key)));
+            } catch(IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Skipping unparsable rate limit of command " + command + ".", e);
+            }
+        }
+        this.commandQuotas = Collections.unmodifiableMap(commandQuotas);
+        LOGGER.info("Setting command rate limits to " + commandQuotas);
+
+        scriptWorkers = parseInt(properties, "SCRIPT-WORKERS", 0);
+        LOGGER.info("Setting script workers to " + scriptWorkers);
+
+        scriptWorkerEvals = parseInt(properties, "SCRIPT-WORKER-EVALS", 100);
+        LOGGER.info("Setting script worker evals to " + scriptWorkerEvals);
+
+        scriptWorkerHeap = parseInt(properties, "SCRIPT-WORKER-HEAP", 128);
+        LOGGER.info("Setting script worker heap to " + scriptWorkerHeap + "MB");
+
+        value = properties.getProperty("LOADED-SCRIPTS", "loaded-scripts").trim();
+        loadedScripts = value.isEmpty() ? null : Paths.get(value);
+        LOGGER.info("Setting loaded scripts dir to " + loadedScripts);
+
+        value = properties.getProperty("GROOVY-COMPILE", "dynamic");
+        CompileMode compileMode;
+        try {
+            compileMode = CompileMode.valueOf(value.trim().toUpperCase());
+        } catch(IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Unparsable Groovy compile mode, using dynamic.", e);
+            compileMode = CompileMode.DYNAMIC;
+        }
+        this.compileMode = compileMode;
+        LOGGER.info("Setting Groovy compile mode to " + compileMode);
+
+        value = properties.getProperty("SCRIPT-SANDBOX", "security-manager");
+        SandboxMode sandboxMode;
+        try {
+            sandboxMode = SandboxMode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch(IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Unparsable script sandbox mode, using security-manager.", e);
+            sandboxMode = SandboxMode.SECURITY_MANAGER;
+        }
+        if (sandboxMode == SandboxMode.AST && scriptWorkers == 0) {
+            LOGGER.warning("The ast script sandbox needs script workers, using security-manager.");
+            sandboxMode = SandboxMode.SECURITY_MANAGER;
+        }
+        this.sandboxMode = sandboxMode;
+        LOGGER.info("Setting script sandbox mode to " + sandboxMode);
+
+        value = properties.getProperty("SCRIPT-WARMUP", "").trim();
+        scriptWarmup = value.isEmpty() ? null : Paths.get(value);
+        LOGGER.info("Setting script warmup corpus to " + scriptWarmup);
+
+        scriptWarmupRounds = parseInt(properties, "SCRIPT-WARMUP-ROUNDS", 3);
+        LOGGER.info("Setting script warmup rounds to " + scriptWarmupRounds);
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) { return defaultValue; }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch(NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Unparsable value of " + key + ", using default.", e);
+            return defaultValue;
+        }
     }
 
     /**
@@ -97,6 +207,36 @@ public class BotConfig implements CredentialsProvider {
         return javadocs;
     }
 
+    /**
+     * Gets how much memory the parsed Javadoc classes may take up.
+     * 
+     * @return the cache size in megabytes, approximately (defaults to 32)
+     */
+    public int getJavadocCacheSize() {
+        return javadocCacheSize;
+    }
+
+    /**
+     * Gets the file that records how often each class is looked up with the
+     * "javadoc" command.
+     * 
+     * @return the file (defaults to "javadoc-usage.txt") or null not to record
+     *         the lookups
+     */
+    public Path getJavadocUsageFile() {
+        return javadocUsage;
+    }
+
+    /**
+     * Gets how many of the most looked up classes are loaded in the background
+     * at startup.
+     * 
+     * @return the number of classes (defaults to 50), 0 disables the warmup
+     */
+    public int getJavadocWarmup() {
+        return javadocWarmup;
+    }
+
     /**
      * Gets the IDs of the rooms to join.
      * 
@@ -106,6 +246,106 @@ public class BotConfig implements CredentialsProvider {
         return rooms;
     }
 
+    /**
+     * Gets the rate limit of commands that have no rate limit of their own.
+     * Configured as "{perUser},{perRoom},{windowSeconds}".
+     * 
+     * @return the default rate limit (defaults to "10,30,60") or null if
+     *         commands should not be limited
+     */
+    public CommandQuota getDefaultCommandQuota() {
+        return defaultQuota;
+    }
+
+    /**
+     * Gets the rate limits of individual commands. These are configured as
+     * "RATE-LIMIT.{command}={perUser},{perRoom},{windowSeconds}".
+     * 
+     * @return the rate limits, keyed by command name
+     */
+    public Map<String, CommandQuota> getCommandQuotas() {
+        return commandQuotas;
+    }
+
+    /**
+     * Gets the number of worker JVMs to evaluate scripts in.
+     * 
+     * @return the number of workers (defaults to "0", which evaluates scripts
+     *         in the bot's JVM)
+     */
+    public int getScriptWorkers() {
+        return scriptWorkers;
+    }
+
+    /**
+     * Gets the number of evals after which a script worker is replaced.
+     * 
+     * @return the number of evals (defaults to "100")
+     */
+    public int getScriptWorkerEvals() {
+        return scriptWorkerEvals;
+    }
+
+    /**
+     * Gets the maximum heap size of each script worker.
+     * 
+     * @return the heap size in megabytes (defaults to "128")
+     */
+    public int getScriptWorkerHeap() {
+        return scriptWorkerHeap;
+    }
+
+    /**
+     * Gets the directory where the classes loaded with the "load" command are
+     * persisted.
+     * 
+     * @return the directory (defaults to "loaded-scripts") or null if they
+     *         should not be persisted
+     */
+    public Path getLoadedScriptsDir() {
+        return loadedScripts;
+    }
+
+    /**
+     * Gets how evaluated Groovy scripts are compiled, unless the eval asks for
+     * a mode of its own.
+     * 
+     * @return the compile mode (defaults to {@link CompileMode#DYNAMIC})
+     */
+    public CompileMode getCompileMode() {
+        return compileMode;
+    }
+
+    /**
+     * Gets how scripts are kept from harming the bot.
+     * 
+     * @return the sandbox mode (defaults to
+     *         {@link SandboxMode#SECURITY_MANAGER}, which is also used when
+     *         {@link SandboxMode#AST} is asked for without script workers)
+     */
+    public SandboxMode getSandboxMode() {
+        return sandboxMode;
+    }
+
+    /**
+     * Gets the file holding the scripts that warm up the script runner at
+     * startup, one script per line.
+     * 
+     * @return the file or null to use the built-in scripts (default)
+     */
+    public Path getScriptWarmupFile() {
+        return scriptWarmup;
+    }
+
+    /**
+     * Gets how many times the warmup scripts are evaluated at startup.
+     * 
+     * @return the number of rounds (defaults to 3), 0 disables the warmup
+     */
+    public int getScriptWarmupRounds() {
+        return scriptWarmupRounds;
+    }
+
     @Override
     public String getIdentificator() {
         return loginEmail;
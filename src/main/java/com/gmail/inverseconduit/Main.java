@@ -14,6 +14,7 @@ import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import com.gmail.inverseconduit.bot.Program;
+import com.gmail.inverseconduit.scripts.SandboxMode;
 import com.gmail.inverseconduit.security.ScriptSecurityManager;
 import com.gmail.inverseconduit.security.ScriptSecurityPolicy;
 
@@ -21,13 +22,15 @@ public class Main {
     public static void main(String[] args) throws Exception {
     	setupLogging();
     	
-        //sandbox this ...
-        Policy.setPolicy(ScriptSecurityPolicy.getInstance());
-        System.setSecurityManager(ScriptSecurityManager.getInstance());
-        
         BotConfig config = loadConfig();
         AppContext.INSTANCE.add(config);
 
+        //sandbox this ...
+        if (config.getSandboxMode() == SandboxMode.SECURITY_MANAGER) {
+            Policy.setPolicy(ScriptSecurityPolicy.getInstance());
+            System.setSecurityManager(ScriptSecurityManager.getInstance());
+        }
+
         Program p = new Program();
         p.startup();
     }
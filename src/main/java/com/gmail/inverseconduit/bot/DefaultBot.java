@@ -12,6 +12,7 @@ import com.gmail.inverseconduit.BotConfig;
 import com.gmail.inverseconduit.chat.ChatInterface;
 import com.gmail.inverseconduit.chat.Subscribable;
 import com.gmail.inverseconduit.commands.CommandHandle;
+import com.gmail.inverseconduit.commands.CommandRateLimiter;
 import com.gmail.inverseconduit.datatype.ChatMessage;
 import com.gmail.inverseconduit.datatype.SeChatDescriptor;
 
@@ -33,11 +34,26 @@ public class DefaultBot extends AbstractBot implements Subscribable<CommandHandl
 
     protected final ChatInterface      chatInterface;
 
+    protected final CommandRateLimiter rateLimiter;
+
     protected final Set<CommandHandle> commands = new HashSet<>();
     protected final Set<CommandHandle> listeners = new HashSet<>();
 
     public DefaultBot(ChatInterface chatInterface) {
+        this(chatInterface, new CommandRateLimiter());
+    }
+
+    /**
+     * @param chatInterface
+     *        the chat to answer to
+     * @param rateLimiter
+     *        limits how often users and rooms may invoke commands. Invocations
+     *        over the limit are dropped silently, so they neither occupy the
+     *        processing thread nor the account's post budget.
+     */
+    public DefaultBot(ChatInterface chatInterface, CommandRateLimiter rateLimiter) {
         this.chatInterface = chatInterface;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -58,10 +74,31 @@ public class DefaultBot extends AbstractBot implements Subscribable<CommandHandl
         final String trigger = AppContext.INSTANCE.get(BotConfig.class).getTrigger();
         if ( !chatMessage.getMessage().startsWith(trigger)) { return; }
 
-        commands.stream().filter(c -> chatMessage.getMessage().replace(trigger, "").startsWith(c.getName())).findFirst().map(c -> c.execute(chatMessage))
+        final String commandText = chatMessage.getMessage().substring(trigger.length());
+        commands.stream().filter(c -> invokes(commandText, c.getName())).findFirst()
+                .filter(c -> rateLimiter.tryAcquire(c.getName(), chatMessage.getUserId(), chatMessage.getRoomId())).map(c -> c.execute(chatMessage))
                 .ifPresent(result -> chatInterface.sendMessage(SeChatDescriptor.buildSeChatDescriptorFrom(chatMessage), result));
     }
 
+    /**
+     * Checks whether a message invokes a command. The command name has to be
+     * followed by whitespace, a colon or the end of the message, so that a
+     * command's name may be a prefix of another's (e.g. "java" and "javadoc").
+     * 
+     * @param commandText
+     *        the message without the trigger
+     * @param name
+     *        the command name
+     * @return true if the message invokes the command
+     */
+    static boolean invokes(String commandText, String name) {
+        if ( !commandText.startsWith(name)) { return false; }
+        if (commandText.length() == name.length()) { return true; }
+
+        char next = commandText.charAt(name.length());
+        return Character.isWhitespace(next) || next == ':';
+    }
+
     public Set<CommandHandle> getCommands() {
         return Collections.unmodifiableSet(commands);
     }
@@ -15,6 +15,7 @@ import com.gmail.inverseconduit.SESite;
 import com.gmail.inverseconduit.chat.ChatInterface;
 import com.gmail.inverseconduit.chat.StackExchangeChat;
 import com.gmail.inverseconduit.commands.CommandHandle;
+import com.gmail.inverseconduit.commands.CommandRateLimiter;
 import com.gmail.inverseconduit.commands.sets.CoreBotCommands;
 import com.gmail.inverseconduit.datatype.SeChatDescriptor;
 import com.gmail.inverseconduit.javadoc.JavaDocAccessor;
@@ -52,11 +53,11 @@ public class Program {
     // implementations
     public Program() throws IOException {
         LOGGER.finest("Instantiating Program");
-        bot = new DefaultBot(chatInterface);
+        bot = new DefaultBot(chatInterface, new CommandRateLimiter(config.getDefaultCommandQuota(), config.getCommandQuotas()));
         interactionBot = new InteractionBot(chatInterface);
 
         //better not get ExceptionInInitializerError
-        javaDocAccessor = new JavaDocAccessor(config.getJavadocsDir());
+        javaDocAccessor = new JavaDocAccessor(config.getJavadocsDir(), config.getJavadocCacheSize() * 1024L * 1024L, config.getJavadocUsageFile(), config.getJavadocWarmup());
         chatInterface.subscribe(bot);
         chatInterface.subscribe(interactionBot);
         LOGGER.info("Basic component setup complete");
@@ -73,6 +74,7 @@ public class Program {
             chatInterface.joinChat(new SeChatDescriptor.DescriptorBuilder(SESite.STACK_OVERFLOW).setRoom(() -> room).build());
         }
         scheduleQueryingThread();
+        scheduleJavadocUsageSaving();
         bot.start();
         interactionBot.start();
         LOGGER.info("Startup completed.");
@@ -92,6 +94,18 @@ public class Program {
         Logger.getAnonymousLogger().info("querying thread started");
     }
 
+    private void scheduleJavadocUsageSaving() {
+        executor.scheduleWithFixedDelay(this::saveJavadocUsage, 5, 5, TimeUnit.MINUTES);
+    }
+
+    private void saveJavadocUsage() {
+        try {
+            javaDocAccessor.saveUsage();
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save the javadoc usage counts.", e);
+        }
+    }
+
     private void login() {
         boolean loggedIn = chatInterface.login(SESite.STACK_OVERFLOW, config);
         if ( !loggedIn) {
@@ -135,6 +149,7 @@ public class Program {
             // FIXME: Require permissions for this
             chatInterface.broadcast("*~going down*");
             executor.shutdownNow();
+            saveJavadocUsage();
             System.exit(0);
             return "";
         }).build();
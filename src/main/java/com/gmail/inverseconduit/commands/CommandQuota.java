@@ -0,0 +1,81 @@
+package com.gmail.inverseconduit.commands;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how often a command may be invoked within a sliding time window,
+ * both by a single user and within a single room.
+ *
+ * @see CommandRateLimiter
+ */
+public final class CommandQuota {
+
+    /**
+     * The largest number of permits a window can hold. Counters are packed
+     * into 16 bits, see {@link SlidingWindowCounters}.
+     */
+    public static final int MAX_PERMITS = 0xFFFF - 1;
+
+    private final int       perUser;
+
+    private final int       perRoom;
+
+    private final long      windowMillis;
+
+    /**
+     * @param perUser
+     *        the number of invocations a single user may make per window
+     * @param perRoom
+     *        the number of invocations that may be made in a single room per
+     *        window
+     * @param window
+     *        the length of the window
+     * @param unit
+     *        the unit of the window length
+     * @throws IllegalArgumentException
+     *         if a permit count is not between 1 and {@link #MAX_PERMITS} or
+     *         if the window is shorter than one second
+     */
+    public CommandQuota(int perUser, int perRoom, long window, TimeUnit unit) {
+        if (perUser < 1 || perUser > MAX_PERMITS || perRoom < 1 || perRoom > MAX_PERMITS) { throw new IllegalArgumentException("Permits must be between 1 and " + MAX_PERMITS + "."); }
+        if (unit.toSeconds(window) < 1) { throw new IllegalArgumentException("Window must be at least one second long."); }
+
+        this.perUser = perUser;
+        this.perRoom = perRoom;
+        this.windowMillis = unit.toMillis(window);
+    }
+
+    /**
+     * Parses a quota in the form "{perUser},{perRoom},{windowSeconds}", e.g.
+     * "5,20,60".
+     *
+     * @param value
+     *        the value to parse
+     * @return the parsed quota
+     * @throws IllegalArgumentException
+     *         if the value could not be parsed
+     */
+    public static CommandQuota parse(String value) {
+        String[] parts = value.trim().split("\\s*,\\s*");
+        if (parts.length != 3) { throw new IllegalArgumentException("Expected \"{perUser},{perRoom},{windowSeconds}\" but got \"" + value + "\"."); }
+
+        return new CommandQuota(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]), TimeUnit.SECONDS);
+    }
+
+    public int getPerUser() {
+        return perUser;
+    }
+
+    public int getPerRoom() {
+        return perRoom;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/user, %d/room per %ds", perUser, perRoom, TimeUnit.MILLISECONDS.toSeconds(windowMillis));
+    }
+}
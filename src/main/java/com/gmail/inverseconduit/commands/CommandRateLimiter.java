@@ -0,0 +1,102 @@
+package com.gmail.inverseconduit.commands;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Limits how often commands may be invoked per user and per room. Each command
+ * has its own {@link CommandQuota}, commands without a quota of their own
+ * share the default quota. Commands that end up without any quota are not
+ * limited.
+ */
+@ThreadSafe
+public class CommandRateLimiter {
+
+    /**
+     * The number of users and rooms that can be tracked at the same time per
+     * command.
+     */
+    private static final int                     CAPACITY = 1024;
+
+    private final CommandQuota                   defaultQuota;
+
+    private final Map<String, CommandQuota>      quotas;
+
+    private final ConcurrentMap<String, Windows> windows  = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a rate limiter that does not limit anything.
+     */
+    public CommandRateLimiter() {
+        this(null, Collections.emptyMap());
+    }
+
+    /**
+     * @param defaultQuota
+     *        the quota of commands that have no quota of their own or null not
+     *        to limit those commands
+     * @param quotas
+     *        the quotas of individual commands, keyed by command name
+     */
+    public CommandRateLimiter(CommandQuota defaultQuota, Map<String, CommandQuota> quotas) {
+        this.defaultQuota = defaultQuota;
+        this.quotas = Collections.unmodifiableMap(new HashMap<>(quotas));
+    }
+
+    /**
+     * Takes a permit for invoking the given command.
+     *
+     * @param command
+     *        the command name
+     * @param userId
+     *        the ID of the invoking user
+     * @param roomId
+     *        the ID of the room the command was invoked in
+     * @return true if the command may be executed, false if the user or room
+     *         used up their quota
+     */
+    public boolean tryAcquire(String command, int userId, int roomId) {
+        return tryAcquire(command, userId, roomId, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(String command, int userId, int roomId, long now) {
+        Windows w = windows.get(command);
+        if (w == null) {
+            CommandQuota quota = quotas.getOrDefault(command, defaultQuota);
+            if (quota == null) { return true; }
+            w = windows.computeIfAbsent(command, name -> new Windows(quota));
+        }
+
+        //check the user first, so a flooding user does not eat up the budget of the whole room
+        if (!w.users.tryAcquire(userId, now)) { return false; }
+        if (!w.rooms.tryAcquire(roomId, now)) {
+            //the command is not executed, so do not charge the user for it
+            w.users.release(userId, now);
+            return false;
+        }
+        return true;
+    }
+
+    public CommandQuota getDefaultQuota() {
+        return defaultQuota;
+    }
+
+    public Map<String, CommandQuota> getQuotas() {
+        return quotas;
+    }
+
+    private static class Windows {
+
+        private final SlidingWindowCounters users, rooms;
+
+        private Windows(CommandQuota quota) {
+            users = new SlidingWindowCounters(quota.getPerUser(), quota.getWindowMillis(), CAPACITY);
+            rooms = new SlidingWindowCounters(quota.getPerRoom(), quota.getWindowMillis(), CAPACITY);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.gmail.inverseconduit.commands;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size table of sliding-window counters, keyed by an int ID (a user or
+ * room ID). Each counter is packed into a single long and updated with CAS, so
+ * acquiring a permit never locks and never allocates.<br />
+ * <br />
+ * The window is approximated from two buckets: the count of the current window
+ * plus the count of the previous window, weighted by how much of it still
+ * overlaps the sliding window. Counters whose windows lie in the past count as
+ * zero, so slots expire on their own and are reused by other keys.
+ */
+final class SlidingWindowCounters {
+
+    /**
+     * How many slots are inspected before giving up on finding one for a key.
+     */
+    private static final int      PROBES     = 8;
+
+    /**
+     * Marks a key slot as in use, so that the ID 0 can be told apart from an
+     * empty slot.
+     */
+    private static final long     USED       = 1L << 32;
+
+    private static final long     COUNT_MASK = 0xFFFFL;
+
+    private final int             permits;
+
+    private final long            windowMillis;
+
+    private final int             mask;
+
+    /**
+     * The key of each slot, or 0 if the slot was never used.
+     */
+    private final AtomicLongArray keys;
+
+    /**
+     * The counter of each slot. The upper 32 bits hold the window number, the
+     * next 16 bits the count of the previous window and the lowest 16 bits the
+     * count of the current window.
+     */
+    private final AtomicLongArray states;
+
+    /**
+     * @param permits
+     *        the number of permits per window
+     * @param windowMillis
+     *        the window length in milliseconds
+     * @param capacity
+     *        the minimum number of keys that can be tracked at the same time
+     */
+    SlidingWindowCounters(int permits, long windowMillis, int capacity) {
+        this.permits = permits;
+        this.windowMillis = windowMillis;
+
+        int size = Integer.highestOneBit(Math.max(capacity, PROBES) * 2 - 1);
+        mask = size - 1;
+        keys = new AtomicLongArray(size);
+        states = new AtomicLongArray(size);
+    }
+
+    /**
+     * Tries to take a permit for the given key.
+     *
+     * @param id
+     *        the key (e.g. a user ID)
+     * @param now
+     *        the current time in milliseconds
+     * @return true if a permit was taken, false if the key used up its permits
+     *         for the current window
+     */
+    boolean tryAcquire(int id, long now) {
+        long window = now / windowMillis;
+        int slot = findSlot(id, window);
+        if (slot < 0) {
+            //table is full around this key, fail open rather than punish the user for a collision
+            return true;
+        }
+
+        long elapsed = now - window * windowMillis;
+        while (true) {
+            long state = states.get(slot);
+            long stateWindow = state >>> 32;
+            long previous, current;
+            if (stateWindow == window) {
+                previous = (state >>> 16) & COUNT_MASK;
+                current = state & COUNT_MASK;
+            } else if (stateWindow == window - 1) {
+                previous = state & COUNT_MASK;
+                current = 0;
+            } else {
+                previous = current = 0;
+            }
+
+            long estimate = current + previous * (windowMillis - elapsed) / windowMillis;
+            if (estimate >= permits) { return false; }
+
+            long next = (window << 32) | (previous << 16) | (current + 1);
+            if (states.compareAndSet(slot, state, next)) { return true; }
+        }
+    }
+
+    /**
+     * Gives back a permit that was taken by {@link #tryAcquire}, for example
+     * because another limit rejected the command. Does nothing if the window
+     * the permit was taken in has ended.
+     *
+     * @param id
+     *        the key
+     * @param now
+     *        the time in milliseconds that was passed to {@link #tryAcquire}
+     */
+    void release(int id, long now) {
+        long window = now / windowMillis;
+        long key = USED | (id & 0xFFFFFFFFL);
+        int start = mix(id);
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            if (keys.get(slot) != key) {
+                continue;
+            }
+
+            while (true) {
+                long state = states.get(slot);
+                if ((state >>> 32) != window || (state & COUNT_MASK) == 0) { return; }
+                if (states.compareAndSet(slot, state, state - 1)) { return; }
+            }
+        }
+    }
+
+    private int findSlot(int id, long window) {
+        long key = USED | (id & 0xFFFFFFFFL);
+        int start = mix(id);
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            long current = keys.get(slot);
+            if (current == key) { return slot; }
+
+            //claim slots that are empty or whose counters ran out of the window
+            boolean expired = (states.get(slot) >>> 32) < window - 1;
+            if ((current == 0 || expired) && keys.compareAndSet(slot, current, key)) { return slot; }
+
+            if (keys.get(slot) == key) { return slot; }
+        }
+        return -1;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
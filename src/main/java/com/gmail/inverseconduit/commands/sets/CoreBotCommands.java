@@ -1,19 +1,31 @@
 package com.gmail.inverseconduit.commands.sets;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import com.gmail.inverseconduit.AppContext;
 import com.gmail.inverseconduit.BotConfig;
 import com.gmail.inverseconduit.chat.ChatInterface;
 import com.gmail.inverseconduit.chat.Subscribable;
 import com.gmail.inverseconduit.commands.CommandHandle;
+import com.gmail.inverseconduit.scripts.LoadedScriptStore;
 import com.gmail.inverseconduit.scripts.ScriptRunner;
+import com.gmail.inverseconduit.scripts.ScriptWorkerPool;
 
 public final class CoreBotCommands {
 
+    private static final Logger    LOGGER      = Logger.getLogger(CoreBotCommands.class.getName());
+
     private static final BotConfig BOT_CONFIG  = AppContext.INSTANCE.get(BotConfig.class);
 
     final Set<CommandHandle>       allCommands = new HashSet<>();
@@ -37,11 +49,37 @@ public final class CoreBotCommands {
     }
 
     private void createGroovyCommands() {
-        ScriptRunner runner = new ScriptRunner();
+        ScriptRunner.Builder builder = new ScriptRunner.Builder().compileMode(BOT_CONFIG.getCompileMode()).sandboxMode(BOT_CONFIG.getSandboxMode());
+        if (BOT_CONFIG.getScriptWorkers() > 0) {
+            builder.workerPool(new ScriptWorkerPool(BOT_CONFIG.getScriptWorkers(), BOT_CONFIG.getScriptWorkerEvals(), BOT_CONFIG.getScriptWorkerHeap(), BOT_CONFIG
+                    .getSandboxMode()));
+        }
+        if (BOT_CONFIG.getLoadedScriptsDir() != null) {
+            try {
+                builder.loadedScriptStore(new LoadedScriptStore(BOT_CONFIG.getLoadedScriptsDir()));
+            } catch(IOException e) {
+                LOGGER.log(Level.WARNING, "Could not open the store of loaded scripts, loaded scripts will not be persisted.", e);
+            }
+        }
+        builder.warmup(loadWarmupScripts(), BOT_CONFIG.getScriptWarmupRounds());
+        ScriptRunner runner = builder.build();
         allCommands.add(ScriptRunnerCommands.evalCommand(runner));
+        allCommands.add(ScriptRunnerCommands.javaCommand(runner));
         allCommands.add(ScriptRunnerCommands.loadCommand(runner));
     }
 
+    private static List<String> loadWarmupScripts() {
+        Path file = BOT_CONFIG.getScriptWarmupFile();
+        if (file == null) { return ScriptRunner.DEFAULT_WARMUP; }
+
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8).stream().filter(line -> !line.trim().isEmpty()).collect(Collectors.toList());
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read the script warmup corpus, using the default one.", e);
+            return ScriptRunner.DEFAULT_WARMUP;
+        }
+    }
+
     private void createAboutCommand() {
         CommandHandle about =
                 new CommandHandle.Builder("about", message -> {
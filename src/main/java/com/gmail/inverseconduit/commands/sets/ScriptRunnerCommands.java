@@ -1,33 +1,51 @@
 package com.gmail.inverseconduit.commands.sets;
 
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.gmail.inverseconduit.AppContext;
 import com.gmail.inverseconduit.BotConfig;
 import com.gmail.inverseconduit.commands.CommandHandle;
+import com.gmail.inverseconduit.scripts.CompileMode;
 import com.gmail.inverseconduit.scripts.ScriptRunner;
 
 public final class ScriptRunnerCommands {
 
-    private static final BotConfig config      = AppContext.INSTANCE.get(BotConfig.class);
+    /**
+     * Read once, until the commands declare their invocation with
+     * <tt>@ListenerProperty</tt>.
+     */
+    @SuppressWarnings("deprecation")
+    private static final String    trigger     = AppContext.INSTANCE.get(BotConfig.class).getTrigger();
 
-    private static final Pattern   evalPattern = Pattern.compile("^" + Pattern.quote(config.getTrigger()) + "eval (.*)", Pattern.DOTALL);
+    private static final Pattern   evalPattern = Pattern.compile("^" + Pattern.quote(trigger) + "eval(?: --(static|dynamic|auto))? (.*)", Pattern.DOTALL);
 
-    private static final Pattern   loadPattern = Pattern.compile("^" + Pattern.quote(config.getTrigger()) + "load (.*)", Pattern.DOTALL);
+    private static final Pattern   javaPattern = Pattern.compile("^" + Pattern.quote(trigger) + "java\\s(.*)", Pattern.DOTALL);
+
+    private static final Pattern   loadPattern = Pattern.compile("^" + Pattern.quote(trigger) + "load (.*)", Pattern.DOTALL);
 
     public static CommandHandle evalCommand(ScriptRunner scriptRunner) {
         return new CommandHandle.Builder("eval", message -> {
             Matcher matcher = evalPattern.matcher(message.getMessage());
-            matcher.find();
-            return scriptRunner.evaluateGroovy(message, matcher.group(1).trim());
-        }).setHelpText("Evaluates a given groovy script. Syntax: '" + config.getTrigger() + "eval {groovy}'").setInfoText("GroovyScript evaluation").build();
+            if ( !matcher.find()) { return "Syntax: '" + trigger + "eval [--static|--dynamic|--auto] {groovy}'"; }
+            CompileMode mode = (matcher.group(1) == null) ? null : CompileMode.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+            return scriptRunner.evaluateGroovy(message, matcher.group(2).trim(), mode);
+        }).setHelpText("Evaluates a given groovy script. Syntax: '" + trigger + "eval [--static|--dynamic|--auto] {groovy}'").setInfoText("GroovyScript evaluation").build();
+    }
+
+    public static CommandHandle javaCommand(ScriptRunner scriptRunner) {
+        return new CommandHandle.Builder("java", message -> {
+            Matcher matcher = javaPattern.matcher(message.getMessage());
+            if ( !matcher.find()) { return "Syntax: '" + trigger + "java {java}'"; }
+            return scriptRunner.evaluateJava(message, matcher.group(1).trim());
+        }).setHelpText("Evaluates a given Java expression or statements. Syntax: '" + trigger + "java {java}'").setInfoText("Java snippet evaluation").build();
     }
 
     public static CommandHandle loadCommand(ScriptRunner scriptRunner) {
         return new CommandHandle.Builder("load", message -> {
             Matcher matcher = loadPattern.matcher(message.getMessage());
-            matcher.find();
+            if ( !matcher.find()) { return "Syntax: '" + trigger + "load {groovy}'"; }
             scriptRunner.evaluateAndCache(matcher.group(1));
             return "Thanks, I'll remember that";
         }).build();
@@ -0,0 +1,211 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the simple and fully-qualified names of classes to the classes'
+ * fully-qualified names, ignoring case. For example, "string" and
+ * "java.lang.string" are both mapped to "java.lang.String". Note that there
+ * can be more than one class mapped to an alias (for example "list" is mapped
+ * to "java.util.List" and "java.awt.List").<br />
+ * <br />
+ * Instead of hash maps, the index is made up of sorted arrays, which take up
+ * a fraction of the memory and also support prefix searches. Lookups use
+ * binary search. The index is immutable.
+ * @author Michael Angstadt
+ */
+final class AliasIndex {
+	/**
+	 * The fully-qualified class names, sorted.
+	 */
+	private final String[] classNames;
+
+	/**
+	 * The lower-cased aliases, sorted. Aliases that are shared by several
+	 * classes are stored once for each class, but share the same string
+	 * instance.
+	 */
+	private final String[] aliases;
+
+	/**
+	 * For each alias, the position of its class in {@link #classNames}.
+	 */
+	private final int[] classes;
+
+	private AliasIndex(Builder builder) {
+		classNames = builder.classNames.toArray(new String[0]);
+		Arrays.sort(classNames);
+
+		List<Alias> entries = builder.aliases;
+		entries.sort((a, b) -> a.alias.compareTo(b.alias));
+		aliases = new String[entries.size()];
+		classes = new int[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			Alias entry = entries.get(i);
+			aliases[i] = entry.alias;
+			classes[i] = Arrays.binarySearch(classNames, entry.fullName);
+		}
+	}
+
+	/**
+	 * Determines if the index contains a class.
+	 * @param fullName the fully-qualified class name (case sensitive)
+	 * @return true if the class is in the index, false if not
+	 */
+	public boolean contains(String fullName) {
+		return Arrays.binarySearch(classNames, fullName) >= 0;
+	}
+
+	/**
+	 * Gets the fully-qualified names of all classes in the index.
+	 * @return the class names, sorted
+	 */
+	public List<String> getClassNames() {
+		return Collections.unmodifiableList(Arrays.asList(classNames));
+	}
+
+	/**
+	 * Gets the number of classes in the index.
+	 * @return the number of classes
+	 */
+	public int size() {
+		return classNames.length;
+	}
+
+	/**
+	 * Gets the classes that have the given simple or fully-qualified name.
+	 * @param alias the name
+	 * @param exact true to only return the classes whose name matches the
+	 * case of the given name, false to ignore case
+	 * @return the fully-qualified names of the classes
+	 */
+	public Set<String> get(String alias, boolean exact) {
+		Set<String> matches = new LinkedHashSet<>();
+		String lower = alias.toLowerCase();
+		for (int i = lowerBound(lower); i < aliases.length && aliases[i].equals(lower); i++) {
+			String fullName = classNames[classes[i]];
+			if (!exact || hasName(fullName, alias)) {
+				matches.add(fullName);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets the classes whose simple or fully-qualified name starts with the
+	 * given prefix, ignoring case.
+	 * @param prefix the prefix
+	 * @return the fully-qualified names of the classes, in alphabetical order
+	 * of the matching names
+	 */
+	public Set<String> getByPrefix(String prefix) {
+		Set<String> matches = new LinkedHashSet<>();
+		String lower = prefix.toLowerCase();
+		for (int i = lowerBound(lower); i < aliases.length && aliases[i].startsWith(lower); i++) {
+			matches.add(classNames[classes[i]]);
+		}
+		return matches;
+	}
+
+	/**
+	 * Finds the first alias that is greater than or equal to the given
+	 * string.
+	 * @param lower the lower-cased string
+	 * @return the position of the alias or the number of aliases if all
+	 * aliases are smaller
+	 */
+	private int lowerBound(String lower) {
+		int low = 0, high = aliases.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (aliases[mid].compareTo(lower) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Determines if a class has the given simple or fully-qualified name,
+	 * respecting case.
+	 * @param fullName the fully-qualified class name
+	 * @param name the name
+	 * @return true if the class has the name, false if not
+	 */
+	private static boolean hasName(String fullName, String name) {
+		if (fullName.equals(name)) {
+			return true;
+		}
+
+		int dot = fullName.length() - name.length() - 1;
+		return dot >= 0 && fullName.charAt(dot) == '.' && fullName.endsWith(name);
+	}
+
+	/**
+	 * Builds new instances of {@link AliasIndex}.
+	 */
+	public static class Builder {
+		private final List<String> classNames = new ArrayList<>();
+		private final List<Alias> aliases = new ArrayList<>();
+
+		/**
+		 * Shares the string instances of equal aliases.
+		 */
+		private final Map<String, String> interned = new HashMap<>();
+
+		/**
+		 * Adds a class.
+		 * @param className the class name
+		 * @return this
+		 */
+		public Builder add(ClassName className) {
+			String fullName = className.getFullyQualified();
+			classNames.add(fullName);
+
+			String lowerFull = intern(fullName.toLowerCase());
+			String lowerSimple = intern(className.getSimple().toLowerCase());
+			aliases.add(new Alias(lowerFull, fullName));
+			if (!lowerSimple.equals(lowerFull)) {
+				aliases.add(new Alias(lowerSimple, fullName));
+			}
+			return this;
+		}
+
+		/**
+		 * Gets the string instance that is used for an alias, so other
+		 * indexes can share it.
+		 * @param alias the lower-cased alias
+		 * @return the shared instance
+		 */
+		public String intern(String alias) {
+			String existing = interned.putIfAbsent(alias, alias);
+			return (existing == null) ? alias : existing;
+		}
+
+		/**
+		 * Builds the index.
+		 * @return the index
+		 */
+		public AliasIndex build() {
+			return new AliasIndex(this);
+		}
+	}
+
+	private static class Alias {
+		private final String alias, fullName;
+
+		public Alias(String alias, String fullName) {
+			this.alias = alias;
+			this.fullName = fullName;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A BK-tree, which finds the strings that are within a given edit
+ * (Levenshtein) distance of a query without comparing the query to every
+ * string. The children of a node are keyed by their distance to the node, so
+ * the triangle inequality rules out most subtrees.<br />
+ * <br />
+ * Not thread-safe while strings are being added. Once built, it can be
+ * searched by any number of threads.
+ * @author Michael Angstadt
+ * @param <V> the type of the values that are stored with the strings
+ */
+class BkTree<V> {
+	private Node<V> root;
+	private int size;
+
+	/**
+	 * Adds a string to the tree.
+	 * @param key the string
+	 * @param value the value to store with the string. Adding the same string
+	 * more than once collects its values.
+	 */
+	public void add(String key, V value) {
+		if (root == null) {
+			root = new Node<>(key, value);
+			size++;
+			return;
+		}
+
+		Query query = new Query(key);
+		Node<V> node = root;
+		while (true) {
+			int distance = query.distance(node.key);
+			if (distance == 0) {
+				node.values.add(value);
+				return;
+			}
+
+			Node<V> child = node.child(distance);
+			if (child == null) {
+				node.setChild(distance, new Node<>(key, value));
+				size++;
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Finds the strings that are within the given distance of a query.
+	 * @param query the query
+	 * @param maxDistance the maximum number of single-character insertions,
+	 * deletions, and substitutions
+	 * @return the matches, closest first
+	 */
+	public List<Match<V>> search(String query, int maxDistance) {
+		List<Match<V>> matches = new ArrayList<>();
+		if (root == null) {
+			return matches;
+		}
+
+		Query q = new Query(query);
+		Deque<Node<V>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node<V> node = stack.pop();
+			int distance = q.distance(node.key);
+			if (distance <= maxDistance) {
+				matches.add(new Match<>(node.key, node.values, distance));
+			}
+
+			int from = Math.max(1, distance - maxDistance);
+			int to = Math.min(node.children.length - 1, distance + maxDistance);
+			for (int i = from; i <= to; i++) {
+				Node<V> child = node.children[i];
+				if (child != null) {
+					stack.push(child);
+				}
+			}
+		}
+
+		matches.sort((a, b) -> {
+			int c = a.distance - b.distance;
+			return (c == 0) ? a.key.compareTo(b.key) : c;
+		});
+		return matches;
+	}
+
+	/**
+	 * Gets the number of distinct strings in the tree.
+	 * @return the number of strings
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Computes the Levenshtein distances between a query and other strings.
+	 * Uses Myers' bit-vector algorithm, which handles 64 characters of the
+	 * query per step, so comparing two class names takes about as many steps
+	 * as the other string is long.
+	 */
+	static class Query {
+		private final String query;
+
+		/**
+		 * For each ASCII character, the positions in the query where it
+		 * occurs. Null if the query is too long for the bit-vector algorithm.
+		 */
+		private final long[] positions;
+
+		/**
+		 * @param query the query
+		 */
+		public Query(String query) {
+			this.query = query;
+			if (query.length() > 64) {
+				positions = null;
+				return;
+			}
+
+			positions = new long[128];
+			for (int i = 0; i < query.length(); i++) {
+				char c = query.charAt(i);
+				if (c < 128) {
+					positions[c] |= 1L << i;
+				}
+			}
+		}
+
+		/**
+		 * Computes the Levenshtein distance between the query and a string.
+		 * @param text the string
+		 * @return the distance
+		 */
+		public int distance(String text) {
+			int m = query.length();
+			if (m == 0) {
+				return text.length();
+			}
+			if (positions == null) {
+				return dynamicDistance(text);
+			}
+
+			long last = 1L << (m - 1);
+			long pv = -1, mv = 0;
+			int score = m;
+			for (int j = 0; j < text.length(); j++) {
+				long eq = positions(text.charAt(j));
+				long xv = eq | mv;
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+				if ((ph & last) != 0) {
+					score++;
+				} else if ((mh & last) != 0) {
+					score--;
+				}
+
+				//the first row of the matrix counts up, so a positive delta is shifted in
+				ph = (ph << 1) | 1;
+				mh <<= 1;
+				pv = mh | ~(xv | ph);
+				mv = ph & xv;
+			}
+			return score;
+		}
+
+		private long positions(char c) {
+			if (c < 128) {
+				return positions[c];
+			}
+
+			long eq = 0;
+			for (int i = 0; i < query.length(); i++) {
+				if (query.charAt(i) == c) {
+					eq |= 1L << i;
+				}
+			}
+			return eq;
+		}
+
+		/**
+		 * Computes the distance row by row, for queries that are longer than
+		 * 64 characters.
+		 * @param text the string
+		 * @return the distance
+		 */
+		private int dynamicDistance(String text) {
+			int[] prev = new int[query.length() + 1], cur = new int[query.length() + 1];
+			for (int i = 0; i <= query.length(); i++) {
+				prev[i] = i;
+			}
+
+			for (int j = 1; j <= text.length(); j++) {
+				cur[0] = j;
+				char c = text.charAt(j - 1);
+				for (int i = 1; i <= query.length(); i++) {
+					int cost = (query.charAt(i - 1) == c) ? 0 : 1;
+					cur[i] = Math.min(Math.min(cur[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+				}
+
+				int[] swap = prev;
+				prev = cur;
+				cur = swap;
+			}
+			return prev[query.length()];
+		}
+	}
+
+	private static class Node<V> {
+		private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+		private final String key;
+		private final List<V> values = new ArrayList<>(1);
+
+		/**
+		 * The children, indexed by their distance to this node.
+		 */
+		@SuppressWarnings("unchecked")
+		private Node<V>[] children = (Node<V>[]) NO_CHILDREN;
+
+		public Node(String key, V value) {
+			this.key = key;
+			values.add(value);
+		}
+
+		public Node<V> child(int distance) {
+			return (distance < children.length) ? children[distance] : null;
+		}
+
+		public void setChild(int distance, Node<V> child) {
+			if (distance >= children.length) {
+				children = Arrays.copyOf(children, distance + 1);
+			}
+			children[distance] = child;
+		}
+	}
+
+	/**
+	 * A string that was found by a search.
+	 * @param <V> the value type
+	 */
+	public static class Match<V> {
+		private final String key;
+		private final List<V> values;
+		private final int distance;
+
+		private Match(String key, List<V> values, int distance) {
+			this.key = key;
+			this.values = values;
+			this.distance = distance;
+		}
+
+		/**
+		 * Gets the string that was found.
+		 * @return the string
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Gets the values that were stored with the string.
+		 * @return the values
+		 */
+		public List<V> getValues() {
+			return values;
+		}
+
+		/**
+		 * Gets the edit distance between the string and the query.
+		 * @return the distance
+		 */
+		public int getDistance() {
+			return distance;
+		}
+	}
+}
@@ -2,7 +2,10 @@ package com.gmail.inverseconduit.javadoc;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
@@ -22,6 +25,23 @@ public class ClassInfo {
 	private final boolean deprecated;
 	private final LibraryZipFile zipFile;
 
+	/**
+	 * The methods of the class and its ancestors, built the first time they
+	 * are searched. Counts towards the class's weight in the
+	 * {@link ClassInfoCache}.
+	 */
+	private volatile MethodTable methodTable;
+
+	/**
+	 * The chat responses for the class and for its (and its ancestors')
+	 * methods, rendered the first time they are looked up. Since reloading a
+	 * library creates new {@link ClassInfo} objects, the responses never
+	 * outlive the library they were rendered from. They count towards the
+	 * class's weight in the {@link ClassInfoCache}.
+	 */
+	private volatile RenderedDoc rendered;
+	private final ConcurrentMap<String, RenderedDoc> renderedMethods = new ConcurrentHashMap<>();
+
 	private ClassInfo(Builder builder) {
 		name = builder.name;
 		superClass = builder.superClass;
@@ -122,6 +142,40 @@ public class ClassInfo {
 		return zipFile;
 	}
 
+	MethodTable getMethodTable() {
+		return methodTable;
+	}
+
+	void setMethodTable(MethodTable methodTable) {
+		this.methodTable = methodTable;
+	}
+
+	RenderedDoc getRendered() {
+		return rendered;
+	}
+
+	void setRendered(RenderedDoc rendered) {
+		this.rendered = rendered;
+	}
+
+	/**
+	 * Gets the rendered chat response for a method.
+	 * @param signature the method signature (see
+	 * {@link MethodInfo#getSignature})
+	 * @return the response or null if it hasn't been rendered yet
+	 */
+	RenderedDoc getRenderedMethod(String signature) {
+		return renderedMethods.get(signature);
+	}
+
+	void setRenderedMethod(String signature, RenderedDoc rendered) {
+		renderedMethods.put(signature, rendered);
+	}
+
+	Map<String, RenderedDoc> getRenderedMethods() {
+		return renderedMethods;
+	}
+
 	/**
 	 * Builds new instances of {@link ClassInfo}.
 	 */
@@ -0,0 +1,436 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least-recently-used cache of parsed {@link ClassInfo} objects that is
+ * bounded by the approximate memory the cached objects retain, rather than by
+ * their number. Classes with long descriptions and many methods weigh more
+ * than small ones. Things that are attached to a class after it was cached,
+ * like its method table and its rendered chat responses, add to its weight when the class is
+ * re-weighed (see {@link #reweigh}). Keeps statistics on how well it's
+ * doing.<br />
+ * <br />
+ * Cache hits don't lock. Concurrent misses for the same class wait for a
+ * single load, misses for different classes load in parallel.
+ * @author Michael Angstadt
+ */
+public class ClassInfoCache {
+	/**
+	 * Approximate overhead of a {@link ClassInfo} and its map entry, in bytes.
+	 */
+	private static final int CLASS_OVERHEAD = 256;
+
+	/**
+	 * Approximate overhead of a {@link MethodInfo} and its modifier set, in
+	 * bytes.
+	 */
+	private static final int METHOD_OVERHEAD = 128;
+
+	/**
+	 * Approximate size of a {@link ParameterInfo} and its class name, in bytes.
+	 */
+	private static final int PARAMETER_SIZE = 96;
+
+	/**
+	 * Approximate overhead of a {@link MethodTable} and its maps, in bytes.
+	 */
+	private static final int TABLE_OVERHEAD = 192;
+
+	/**
+	 * Approximate size of a method's entries in the maps of a
+	 * {@link MethodTable}, not counting the strings, in bytes.
+	 */
+	private static final int TABLE_ENTRY_SIZE = 64;
+
+	/**
+	 * Approximate overhead of a {@link RenderedDoc}, its arrays and its map
+	 * entry, in bytes.
+	 */
+	private static final int RENDERED_OVERHEAD = 128;
+
+	/**
+	 * Approximate overhead of each paragraph of a {@link RenderedDoc}: the
+	 * array slots, the string objects and the page number that is appended to
+	 * the response, in bytes.
+	 */
+	private static final int PARAGRAPH_OVERHEAD = 112;
+
+	private final long maxWeight;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * The loads that are in progress, keyed by class name.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<ClassInfo>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * Orders the entries by when they were last used.
+	 */
+	private final AtomicLong clock = new AtomicLong();
+
+	/**
+	 * The total weight of the entries. Guarded by "this", like all other
+	 * modifications of the entries.
+	 */
+	private long weight;
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(), loads = new LongAdder(), loadNanos = new LongAdder();
+
+	/**
+	 * @param maxWeight the maximum total weight of the cached classes, in
+	 * (approximate) bytes
+	 */
+	public ClassInfoCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Gets a class from the cache, loading it if it's not cached.
+	 * @param fullName the fully-qualified class name
+	 * @param loader loads the class if it's not cached
+	 * @return the class or null if the loader didn't find it
+	 * @throws IOException if the loader couldn't load the class
+	 */
+	public ClassInfo get(String fullName, Loader loader) throws IOException {
+		Entry entry = entries.get(fullName);
+		if (entry != null) {
+			hits.increment();
+			entry.lastUsed = clock.incrementAndGet();
+			return entry.info;
+		}
+		misses.increment();
+
+		CompletableFuture<ClassInfo> future = new CompletableFuture<>();
+		CompletableFuture<ClassInfo> existing = loading.putIfAbsent(fullName, future);
+		if (existing != null) {
+			//another thread is loading the class already
+			return join(existing);
+		}
+
+		try {
+			//the class might have been cached since the first check
+			entry = entries.get(fullName);
+			ClassInfo info;
+			if (entry != null) {
+				info = entry.info;
+			} else {
+				long start = System.nanoTime();
+				info = loader.load(fullName);
+				loads.increment();
+				loadNanos.add(System.nanoTime() - start);
+
+				if (info != null) {
+					put(fullName, info);
+				}
+			}
+			future.complete(info);
+			return info;
+		} catch (IOException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(fullName, future);
+		}
+	}
+
+	private static ClassInfo join(CompletableFuture<ClassInfo> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+
+	private synchronized void put(String fullName, ClassInfo info) {
+		long infoWeight = weigh(info);
+		if (infoWeight > maxWeight) {
+			//would evict everything else
+			return;
+		}
+
+		Entry previous = entries.put(fullName, new Entry(info, infoWeight, clock.incrementAndGet()));
+		if (previous != null) {
+			weight -= previous.weight;
+		}
+		weight += infoWeight;
+		evict();
+	}
+
+	/**
+	 * Updates the weight of a cached class after something was attached to
+	 * it. Evicts the least recently used classes if the cache is over budget
+	 * now.
+	 * @param info the class (ignored if it's no longer cached)
+	 */
+	public synchronized void reweigh(ClassInfo info) {
+		Entry entry = entries.get(info.getName().getFullyQualified());
+		if (entry == null || entry.info != info) {
+			return;
+		}
+
+		long infoWeight = weigh(info);
+		weight += infoWeight - entry.weight;
+		entry.weight = infoWeight;
+		evict();
+	}
+
+	private void evict() {
+		while (weight > maxWeight) {
+			//evicting only happens after a class was parsed, which is much slower than this scan
+			Map.Entry<String, Entry> eldest = null;
+			for (Map.Entry<String, Entry> e : entries.entrySet()) {
+				if (eldest == null || e.getValue().lastUsed < eldest.getValue().lastUsed) {
+					eldest = e;
+				}
+			}
+			entries.remove(eldest.getKey());
+			weight -= eldest.getValue().weight;
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Removes classes from the cache.
+	 * @param fullNames the fully-qualified class names
+	 */
+	public synchronized void invalidate(Collection<String> fullNames) {
+		for (String fullName : fullNames) {
+			Entry entry = entries.remove(fullName);
+			if (entry != null) {
+				weight -= entry.weight;
+			}
+		}
+	}
+
+	/**
+	 * Gets the cache's statistics.
+	 * @return the statistics
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(hits.sum(), misses.sum(), evictions.sum(), loads.sum(), loadNanos.sum(), entries.size(), weight, maxWeight);
+	}
+
+	/**
+	 * Estimates how much memory a class retains, including its method table
+	 * and the chat responses that were rendered for it so far. Strings make up
+	 * most of it, at two bytes per character.
+	 * @param info the class
+	 * @return the approximate size in bytes
+	 */
+	static long weigh(ClassInfo info) {
+		long weight = CLASS_OVERHEAD + length(info.getDescription()) * 2;
+		for (MethodInfo method : info.getMethods()) {
+			weight += weigh(method);
+		}
+
+		MethodTable table = info.getMethodTable();
+		if (table != null) {
+			weight += weigh(table, info);
+		}
+
+		RenderedDoc rendered = info.getRendered();
+		if (rendered != null) {
+			weight += weigh(rendered);
+		}
+		for (Map.Entry<String, RenderedDoc> entry : info.getRenderedMethods().entrySet()) {
+			weight += length(entry.getKey()) * 2 + weigh(entry.getValue());
+		}
+		return weight;
+	}
+
+	private static long weigh(MethodInfo method) {
+		return METHOD_OVERHEAD + (length(method.getName()) + length(method.getDescription())) * 2 + method.getParameters().size() * PARAMETER_SIZE;
+	}
+
+	/**
+	 * Estimates how much memory a method table retains. The inherited methods
+	 * are counted in full, since the table keeps them alive even after their
+	 * own classes were evicted.
+	 * @param table the method table
+	 * @param info the class the table belongs to
+	 * @return the approximate size in bytes
+	 */
+	static long weigh(MethodTable table, ClassInfo info) {
+		Set<MethodInfo> own = Collections.newSetFromMap(new IdentityHashMap<>());
+		own.addAll(info.getMethods());
+
+		long weight = TABLE_OVERHEAD;
+		for (Map.Entry<String, MethodInfo> entry : table.getSignatures().entrySet()) {
+			MethodInfo method = entry.getValue();
+			//the signature and the lower-cased name are strings of their own
+			weight += TABLE_ENTRY_SIZE + (length(entry.getKey()) + length(method.getName())) * 2;
+			if (!own.contains(method)) {
+				weight += weigh(method);
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Estimates how much memory a chat response retains once all of its
+	 * paragraphs were asked for. It keeps the split description, and each
+	 * paragraph's response repeats the paragraph (the first one the header as
+	 * well).
+	 * @param rendered the chat response
+	 * @return the approximate size in bytes
+	 */
+	static long weigh(RenderedDoc rendered) {
+		return RENDERED_OVERHEAD + rendered.getParagraphCount() * PARAGRAPH_OVERHEAD + rendered.getLength() * 2 * 2;
+	}
+
+	private static int length(String string) {
+		return (string == null) ? 0 : string.length();
+	}
+
+	/**
+	 * Loads classes that are not cached.
+	 */
+	interface Loader {
+		/**
+		 * @param fullName the fully-qualified class name
+		 * @return the class or null if it was not found
+		 * @throws IOException if the class couldn't be loaded
+		 */
+		ClassInfo load(String fullName) throws IOException;
+	}
+
+	private static class Entry {
+		private final ClassInfo info;
+
+		/**
+		 * Guarded by the cache, like the cache's total weight.
+		 */
+		private long weight;
+
+		/**
+		 * The value of the clock when the entry was last used. Racy updates
+		 * are fine, the order only needs to be roughly right.
+		 */
+		private volatile long lastUsed;
+
+		public Entry(ClassInfo info, long weight, long lastUsed) {
+			this.info = info;
+			this.weight = weight;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * A snapshot of the cache's statistics.
+	 */
+	public static class Stats {
+		private final long hits, misses, evictions, loads, loadNanos, size, weight, maxWeight;
+
+		private Stats(long hits, long misses, long evictions, long loads, long loadNanos, long size, long weight, long maxWeight) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.loads = loads;
+			this.loadNanos = loadNanos;
+			this.size = size;
+			this.weight = weight;
+			this.maxWeight = maxWeight;
+		}
+
+		/**
+		 * Gets the number of lookups that were served from the cache.
+		 * @return the number of hits
+		 */
+		public long getHitCount() {
+			return hits;
+		}
+
+		/**
+		 * Gets the number of lookups that had to load the class.
+		 * @return the number of misses
+		 */
+		public long getMissCount() {
+			return misses;
+		}
+
+		/**
+		 * Gets the number of classes that were dropped to make room for
+		 * others.
+		 * @return the number of evictions
+		 */
+		public long getEvictionCount() {
+			return evictions;
+		}
+
+		/**
+		 * Gets the number of times a class was loaded.
+		 * @return the number of loads
+		 */
+		public long getLoadCount() {
+			return loads;
+		}
+
+		/**
+		 * Gets the total time spent loading classes.
+		 * @param unit the time unit
+		 * @return the total load time
+		 */
+		public long getTotalLoadTime(TimeUnit unit) {
+			return unit.convert(loadNanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Gets the share of lookups that were served from the cache.
+		 * @return the hit rate (between 0 and 1) or 1 if there were no lookups
+		 */
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return (lookups == 0) ? 1.0 : (double) hits / lookups;
+		}
+
+		/**
+		 * Gets the number of cached classes.
+		 * @return the number of cached classes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Gets the approximate memory the cached classes retain.
+		 * @return the weight in bytes
+		 */
+		public long getWeight() {
+			return weight;
+		}
+
+		/**
+		 * Gets the cache's budget.
+		 * @return the maximum weight in bytes
+		 */
+		public long getMaxWeight() {
+			return maxWeight;
+		}
+
+		@Override
+		public String toString() {
+			double averageLoadMillis = (loads == 0) ? 0 : loadNanos / 1e6 / loads;
+			return String.format("%d classes, %dKB of %dKB, hit rate %.1f%% (%d hits, %d misses), %d evictions, %d loads averaging %.1fms", size, weight / 1024, maxWeight / 1024, getHitRate() * 100, hits, misses, evictions, loads, averageLoadMillis);
+		}
+	}
+}
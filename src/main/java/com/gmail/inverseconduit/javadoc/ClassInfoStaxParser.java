@@ -0,0 +1,353 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses {@link ClassInfo} objects from XML documents in a single pass,
+ * without building a DOM. Produces the same results as
+ * {@link ClassInfoXmlParser}.
+ * @author Michael Angstadt
+ */
+public class ClassInfoStaxParser {
+	/**
+	 * Creating a factory is expensive. Once configured, it can be shared by
+	 * all threads.
+	 */
+	private static final XMLInputFactory factory;
+	static {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	private final InputStream in;
+	private final LibraryZipFile zipFile;
+
+	/**
+	 * @param in the XML document to parse (is not closed)
+	 * @param zipFile the ZIP file the class belongs to
+	 */
+	public ClassInfoStaxParser(InputStream in, LibraryZipFile zipFile) {
+		this.in = in;
+		this.zipFile = zipFile;
+	}
+
+	/**
+	 * Parses the {@link ClassInfo} object out of the XML data.
+	 * @return the parse object
+	 * @throws XMLStreamException if there's a problem parsing the XML
+	 */
+	public ClassInfo parse() throws XMLStreamException {
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try {
+			reader.nextTag();
+			if (!"class".equals(reader.getLocalName())) {
+				throw new XMLStreamException("Root element is not <class>.", reader.getLocation());
+			}
+			return parseClass(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads only the names of the class's constructors and methods, skipping
+	 * everything else. This is much cheaper than {@link #parse}, which is why
+	 * it's used to index the methods of every class in a library.
+	 * @return the names, with constructors named after the class (like the
+	 * {@link MethodInfo} objects that {@link #parse} builds)
+	 * @throws XMLStreamException if there's a problem parsing the XML
+	 */
+	public Set<String> parseMethodNames() throws XMLStreamException {
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try {
+			reader.nextTag();
+			if (!"class".equals(reader.getLocalName())) {
+				throw new XMLStreamException("Root element is not <class>.", reader.getLocation());
+			}
+
+			String simpleName = attribute(reader, "simpleName");
+			Set<String> names = new HashSet<>();
+			while (nextChild(reader)) {
+				switch (reader.getLocalName()) {
+				case "constructors":
+					while (nextChild(reader)) {
+						if ("constructor".equals(reader.getLocalName())) {
+							names.add(simpleName);
+						}
+						skip(reader);
+					}
+					break;
+				case "methods":
+					while (nextChild(reader)) {
+						if ("method".equals(reader.getLocalName())) {
+							names.add(attribute(reader, "name"));
+						}
+						skip(reader);
+					}
+					break;
+				default:
+					skip(reader);
+					break;
+				}
+			}
+			return names;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private ClassInfo parseClass(XMLStreamReader reader) throws XMLStreamException {
+		ClassInfo.Builder builder = new ClassInfo.Builder();
+		builder.zipFile(zipFile);
+
+		//class name
+		String fullName = attribute(reader, "fullName");
+		String simpleName = attribute(reader, "simpleName");
+		builder.name(fullName, simpleName);
+
+		//modifiers
+		String value = attribute(reader, "modifiers");
+		if (!value.isEmpty()) {
+			builder.modifiers(Arrays.asList(value.split("\\s+")));
+		}
+
+		//super class
+		value = attribute(reader, "extends");
+		if (!value.isEmpty()) {
+			builder.superClass(value);
+		}
+
+		//interfaces
+		value = attribute(reader, "implements");
+		if (!value.isEmpty()) {
+			for (String full : value.split("\\s+")) {
+				builder.interface_(full);
+			}
+		}
+
+		//deprecated
+		value = attribute(reader, "deprecated");
+		builder.deprecated(value.isEmpty() ? false : Boolean.parseBoolean(value));
+
+		//constructors come before methods, no matter where they are in the document
+		List<MethodInfo> constructors = new ArrayList<>();
+		List<MethodInfo> methods = new ArrayList<>();
+		boolean hasDescription = false;
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+			case "description":
+				String description = text(reader);
+				if (!hasDescription) {
+					builder.description(description);
+					hasDescription = true;
+				}
+				break;
+			case "constructors":
+				while (nextChild(reader)) {
+					if ("constructor".equals(reader.getLocalName())) {
+						constructors.add(parseMethod(reader, simpleName));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			case "methods":
+				while (nextChild(reader)) {
+					if ("method".equals(reader.getLocalName())) {
+						methods.add(parseMethod(reader, null));
+					} else {
+						skip(reader);
+					}
+				}
+				break;
+			default:
+				skip(reader);
+				break;
+			}
+		}
+
+		for (MethodInfo constructor : constructors) {
+			builder.method(constructor);
+		}
+		for (MethodInfo method : methods) {
+			builder.method(method);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a constructor or method element.
+	 * @param reader the reader, positioned at the start of the element
+	 * @param constructorName the name of the constructor or null if the
+	 * element is a method
+	 * @return the parsed method
+	 */
+	private MethodInfo parseMethod(XMLStreamReader reader, String constructorName) throws XMLStreamException {
+		MethodInfo.Builder builder = new MethodInfo.Builder();
+
+		//name
+		builder.name((constructorName == null) ? attribute(reader, "name") : constructorName);
+
+		//modifiers
+		String value = attribute(reader, "modifiers");
+		if (!value.isEmpty()) {
+			builder.modifiers(Arrays.asList(value.split("\\s+")));
+		}
+
+		//return value
+		if (constructorName == null) {
+			value = attribute(reader, "returns");
+			if (!value.isEmpty()) {
+				builder.returnValue(new ClassName(value));
+			}
+		}
+
+		//deprecated
+		value = attribute(reader, "deprecated");
+		builder.deprecated(value.isEmpty() ? false : Boolean.parseBoolean(value));
+
+		boolean hasDescription = false;
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+			case "description":
+				String description = text(reader);
+				if (!hasDescription) {
+					builder.description(description);
+					hasDescription = true;
+				}
+				break;
+			case "parameters":
+				while (nextChild(reader)) {
+					if ("parameter".equals(reader.getLocalName())) {
+						builder.parameter(parseParameter(reader));
+					}
+					skip(reader);
+				}
+				break;
+			default:
+				skip(reader);
+				break;
+			}
+		}
+
+		return builder.build();
+	}
+
+	private ParameterInfo parseParameter(XMLStreamReader reader) {
+		String type = attribute(reader, "type");
+
+		//is it an array?
+		boolean array = type.endsWith("[]");
+		if (array) {
+			type = type.substring(0, type.length() - 2);
+		}
+		boolean varargs = type.endsWith("...");
+		if (varargs) {
+			type = type.substring(0, type.length() - 3);
+		}
+
+		//is a generic type? (like List<String>)
+		int pos = type.indexOf('<');
+		String generic = (pos < 0) ? null : type.substring(pos);
+		if (generic != null) {
+			type = type.substring(0, pos);
+		}
+
+		//name
+		String name = attribute(reader, "name");
+
+		return new ParameterInfo(new ClassName(type), name, array, varargs, generic);
+	}
+
+	/**
+	 * Gets an attribute of the current element.
+	 * @param reader the reader, positioned at the start of an element
+	 * @param name the attribute name
+	 * @return the attribute value or empty string if the element doesn't have
+	 * the attribute (like {@link org.w3c.dom.Element#getAttribute})
+	 */
+	private static String attribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return (value == null) ? "" : value;
+	}
+
+	/**
+	 * Moves to the next child element of the current element.
+	 * @param reader the reader, positioned at the start of the parent element
+	 * or at the end of one of its children
+	 * @return true if the reader is now at the start of a child element,
+	 * false if it reached the end of the parent element
+	 */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the text of the current element and all its descendants (like
+	 * {@link org.w3c.dom.Node#getTextContent}).
+	 * @param reader the reader, positioned at the start of the element. Is
+	 * positioned at the end of the element afterwards.
+	 * @return the text
+	 */
+	private static String text(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder sb = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				sb.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Skips the current element and all its descendants.
+	 * @param reader the reader, positioned at the start of the element. Is
+	 * positioned at the end of the element afterwards.
+	 */
+	private static void skip(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Counts how often each class is looked up, so the most popular classes can be
+ * loaded ahead of time after a restart. The counts are stored in a text file,
+ * one class per line in the form "{count} {fullName}".
+ * @author Michael Angstadt
+ */
+public class ClassUsage {
+	private static final Logger logger = Logger.getLogger(ClassUsage.class.getName());
+
+	private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * Counts the lookups since the counts were last saved.
+	 */
+	private final LongAdder changes = new LongAdder();
+
+	/**
+	 * Records a lookup.
+	 * @param fullName the fully-qualified name of the class
+	 */
+	public void record(String fullName) {
+		counts.computeIfAbsent(fullName, k -> new LongAdder()).increment();
+		changes.increment();
+	}
+
+	/**
+	 * Gets the number of times a class was looked up.
+	 * @param fullName the fully-qualified class name
+	 * @return the number of lookups
+	 */
+	public long getCount(String fullName) {
+		LongAdder count = counts.get(fullName);
+		return (count == null) ? 0 : count.sum();
+	}
+
+	/**
+	 * Gets the classes that were looked up the most.
+	 * @param limit the maximum number of classes to return
+	 * @return the fully-qualified class names, most popular first
+	 */
+	public List<String> getTop(int limit) {
+		List<Map.Entry<String, Long>> entries = snapshot();
+		List<String> top = new ArrayList<>();
+		for (Map.Entry<String, Long> entry : entries) {
+			if (top.size() >= limit) {
+				break;
+			}
+			top.add(entry.getKey());
+		}
+		return top;
+	}
+
+	/**
+	 * Adds the counts from a file that was written by {@link #save}. Lines
+	 * that can't be parsed are skipped.
+	 * @param file the file
+	 * @throws IOException if there's a problem reading the file
+	 */
+	public void load(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return;
+		}
+
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			int space = line.indexOf(' ');
+			if (space < 0) {
+				continue;
+			}
+
+			long count;
+			try {
+				count = Long.parseLong(line.substring(0, space));
+			} catch (NumberFormatException e) {
+				logger.warning("Skipping unparsable line in " + file + ": " + line);
+				continue;
+			}
+
+			String fullName = line.substring(space + 1).trim();
+			counts.computeIfAbsent(fullName, k -> new LongAdder()).add(count);
+		}
+	}
+
+	/**
+	 * Writes the counts to a file, unless nothing was looked up since the
+	 * counts were last saved. The file is replaced in one step, so it's never
+	 * left half-written.
+	 * @param file the file
+	 * @throws IOException if there's a problem writing the file
+	 */
+	public void save(Path file) throws IOException {
+		long changes = this.changes.sumThenReset();
+		if (changes == 0) {
+			return;
+		}
+
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, Long> entry : snapshot()) {
+			lines.add(entry.getValue() + " " + entry.getKey());
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			//try again next time
+			this.changes.add(changes);
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the current counts.
+	 * @return the counts, highest first
+	 */
+	private List<Map.Entry<String, Long>> snapshot() {
+		Map<String, Long> snapshot = new HashMap<>();
+		for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().sum());
+		}
+
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(snapshot.entrySet());
+		entries.sort((a, b) -> {
+			int c = Long.compare(b.getValue(), a.getValue());
+			return (c == 0) ? a.getKey().compareTo(b.getKey()) : c;
+		});
+		return entries;
+	}
+}
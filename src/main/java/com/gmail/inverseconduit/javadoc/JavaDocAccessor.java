@@ -8,11 +8,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,11 +30,23 @@ import com.google.common.collect.Multimap;
  * presents them with a list of choices.
  */
 public class JavaDocAccessor {
+	private static final Logger logger = Logger.getLogger(JavaDocAccessor.class.getName());
+
 	/**
 	 * Used for accessing the Javadoc information.
 	 */
 	private final JavadocDao dao;
 
+	/**
+	 * Counts how often each class is looked up.
+	 */
+	private final ClassUsage usage = new ClassUsage();
+
+	/**
+	 * The file the lookup counts are stored in or null not to store them.
+	 */
+	private final Path usageFile;
+
 	/**
 	 * The most recent list of suggestions that were sent to the chat.
 	 */
@@ -51,6 +64,25 @@ public class JavaDocAccessor {
 	 */
 	private static final long choiceTimeout = TimeUnit.SECONDS.toMillis(30);
 
+	/**
+	 * The maximum number of similarly-named classes to suggest when a class
+	 * can't be found.
+	 */
+	private static final int maxSuggestions = 5;
+
+	/**
+	 * The maximum number of classes to list when the user searches for
+	 * classes with wildcards.
+	 */
+	private static final int maxWildcardChoices = 10;
+
+	/**
+	 * When searching for a method without specifying a class, the maximum
+	 * number of classes to look through. If more classes declare the method,
+	 * the user is asked to pick a class.
+	 */
+	private static final int maxMethodSearchClasses = 10;
+
 	/**
 	 * "Flags" that a class can have. They are defined in a List because, if a
 	 * class has multiple modifiers, I want them to be displayed in a consistent
@@ -90,7 +122,55 @@ public class JavaDocAccessor {
 	 * @throws IOException if there's a problem reading a Javadoc file
 	 */
 	public JavaDocAccessor(Path dir) throws IOException {
-		dao = new JavadocDao(dir);
+		this(dir, JavadocDao.DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param dir the directory to the Javadocs folder
+	 * @param cacheSize the approximate memory the cached class info may take
+	 * up, in bytes
+	 * @throws IOException if there's a problem reading a Javadoc file
+	 */
+	public JavaDocAccessor(Path dir, long cacheSize) throws IOException {
+		this(dir, cacheSize, null, 0);
+	}
+
+	/**
+	 * @param dir the directory to the Javadocs folder
+	 * @param cacheSize the approximate memory the cached class info may take
+	 * up, in bytes
+	 * @param usageFile the file to store how often each class is looked up in
+	 * (see {@link #saveUsage}) or null not to store it
+	 * @param warmUpClasses the number of most popular classes to load in the
+	 * background right away
+	 * @throws IOException if there's a problem reading a Javadoc file
+	 */
+	public JavaDocAccessor(Path dir, long cacheSize, Path usageFile, int warmUpClasses) throws IOException {
+		dao = new JavadocDao(dir, cacheSize);
+		this.usageFile = usageFile;
+
+		if (usageFile != null) {
+			try {
+				usage.load(usageFile);
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Could not read the Javadoc usage file " + usageFile + ".", e);
+			}
+		}
+
+		if (warmUpClasses > 0) {
+			dao.warmUp(usage.getTop(warmUpClasses));
+		}
+	}
+
+	/**
+	 * Writes how often each class was looked up to the usage file, if anything
+	 * was looked up since the last time.
+	 * @throws IOException if there's a problem writing the file
+	 */
+	public void saveUsage() throws IOException {
+		if (usageFile != null) {
+			usage.save(usageFile);
+		}
 	}
 
 	/**
@@ -110,12 +190,22 @@ public class JavaDocAccessor {
 
 	private String generateResponse(String commandTextStr) {
 		if (commandTextStr.isEmpty()) {
-			return "Type the name of a Java class (e.g. \"java.lang.String\") or a method (e.g. \"Integer#parseInt\").";
+			return "Type the name of a Java class (e.g. \"java.lang.String\") or a method (e.g. \"Integer#parseInt\" or \"#parseInt\").";
 		}
 
 		//parse the command
 		CommandTextParser commandText = new CommandTextParser(commandTextStr);
 
+		if (commandText.methodName != null && (commandText.className.isEmpty() || commandText.className.equals("*"))) {
+			//search all classes for the method (e.g. "#parseInt" or "*#parseInt")
+			return handleMethodSearch(commandText);
+		}
+
+		if (commandText.className.indexOf('*') >= 0) {
+			//e.g. "Buffered*" or "java.util.concurrent.Conc*"
+			return handleWildcard(commandText, commandTextStr.substring(commandText.className.length()));
+		}
+
 		ClassInfo info;
 		try {
 			info = dao.getClassInfo(commandText.className);
@@ -127,12 +217,118 @@ public class JavaDocAccessor {
 
 		if (info == null) {
 			//couldn't find the class
-			return "Sorry, I never heard of that class. :(";
+			List<String> suggestions = dao.suggestClasses(commandText.className, maxSuggestions);
+			if (suggestions.isEmpty()) {
+				return "Sorry, I never heard of that class. :(";
+			}
+			return printSuggestions(commandTextStr.substring(commandText.className.length()), suggestions);
 		}
 
 		return handleSingleMatch(commandText, info);
 	}
 
+	/**
+	 * Generates the chat response for when the class name contains wildcards.
+	 * @param commandText the command text
+	 * @param rest the rest of the command, after the class name (e.g.
+	 * "#add(int)")
+	 * @return the chat response
+	 */
+	private String handleWildcard(CommandTextParser commandText, String rest) {
+		String query = commandText.className;
+
+		//the text before the first wildcard narrows down the classes that have to be checked
+		String prefix = query.substring(0, query.indexOf('*'));
+		Pattern pattern = wildcardPattern(query);
+		List<String> matches = new ArrayList<>();
+		for (String fullName : dao.findClassesByPrefix(prefix)) {
+			String simpleName = fullName.substring(fullName.lastIndexOf('.') + 1);
+			if (pattern.matcher(simpleName).matches() || pattern.matcher(fullName).matches()) {
+				matches.add(fullName);
+			}
+		}
+
+		if (matches.isEmpty()) {
+			return "Sorry, I never heard of that class. :(";
+		}
+
+		if (matches.size() == 1) {
+			return generateResponse(matches.get(0) + rest);
+		}
+
+		sortByPopularity(matches);
+		String question = "Which one do you mean? (type the number)";
+		if (matches.size() > maxWildcardChoices) {
+			question = "I found " + matches.size() + " classes, here are the most popular ones. Which one do you mean? (type the number)";
+			matches = matches.subList(0, maxWildcardChoices);
+		}
+		return printClassChoices(question, matches, rest);
+	}
+
+	/**
+	 * Sorts classes by how often they were looked up, most popular first.
+	 * Classes that are equally popular are sorted by name.
+	 * @param classNames the fully-qualified class names
+	 */
+	private void sortByPopularity(List<String> classNames) {
+		classNames.sort((a, b) -> {
+			int c = Long.compare(usage.getCount(b), usage.getCount(a));
+			return (c == 0) ? a.compareTo(b) : c;
+		});
+	}
+
+	/**
+	 * Converts a class name that contains wildcards into a regular expression.
+	 * @param query the class name (e.g. "Buffered*")
+	 * @return the regular expression (case insensitive)
+	 */
+	private static Pattern wildcardPattern(String query) {
+		StringBuilder sb = new StringBuilder();
+		int start = 0;
+		int star;
+		while ((star = query.indexOf('*', start)) >= 0) {
+			if (star > start) {
+				sb.append(Pattern.quote(query.substring(start, star)));
+			}
+			sb.append(".*");
+			start = star + 1;
+		}
+		if (start < query.length()) {
+			sb.append(Pattern.quote(query.substring(start)));
+		}
+		return Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE);
+	}
+
+	/**
+	 * Generates the chat response for when the user searches for a method
+	 * without specifying the class.
+	 * @param commandText the command text
+	 * @return the chat response
+	 */
+	private String handleMethodSearch(CommandTextParser commandText) {
+		Collection<String> classes = dao.findMethod(commandText.methodName);
+		if (classes.isEmpty()) {
+			return "Sorry, I can't find that method. :(";
+		}
+
+		if (classes.size() > maxMethodSearchClasses) {
+			//too many classes to load them all, let the user narrow it down
+			return printMethodSearchChoices(commandText, classes);
+		}
+
+		if (classes.size() == 1) {
+			ClassInfo info;
+			try {
+				info = dao.getClassInfo(classes.iterator().next());
+			} catch (IOException e) {
+				throw new RuntimeException("Problem getting Javadoc info.", e);
+			}
+			return handleSingleMatch(commandText, info);
+		}
+
+		return handleMultipleMatches(commandText, classes);
+	}
+
 	/**
 	 * Generates the chat response for when the user's query returns a single
 	 * class.
@@ -271,51 +467,65 @@ public class JavaDocAccessor {
 	 * @return the chat response
 	 */
 	private String printMethod(MethodInfo methodInfo, ClassInfo classInfo, int paragraph) {
+		usage.record(classInfo.getName().getFullyQualified());
+
+		String signature = methodInfo.getSignature();
+		RenderedDoc rendered = classInfo.getRenderedMethod(signature);
+		if (rendered == null) {
+			rendered = renderMethod(methodInfo, classInfo);
+			classInfo.setRenderedMethod(signature, rendered);
+			dao.reweigh(classInfo);
+		}
+		return rendered.get(paragraph);
+	}
+
+	/**
+	 * Renders the Javadoc info of a particular method.
+	 * @param methodInfo the method
+	 * @param classInfo the class that the method belongs to
+	 * @return the rendered response
+	 */
+	private static RenderedDoc renderMethod(MethodInfo methodInfo, ClassInfo classInfo) {
 		ChatBuilder cb = new ChatBuilder();
-		if (paragraph == 1) {
-			//print library name
-			LibraryZipFile zipFile = classInfo.getZipFile();
-			if (zipFile != null) {
-				String name = zipFile.getName();
-				if (name != null && !name.equalsIgnoreCase("java")) {
-					name = name.replace(' ', '-');
-					cb.bold();
-					cb.tag(name);
-					cb.bold();
-					cb.append(' ');
-				}
-			}
 
-			//print modifiers
-			boolean deprecated = methodInfo.isDeprecated();
-			Collection<String> modifiersToPrint = new ArrayList<String>(methodInfo.getModifiers());
-			modifiersToPrint.removeAll(methodModifiersToIgnore);
-			for (String modifier : modifiersToPrint) {
-				if (deprecated) cb.strike();
-				cb.tag(modifier);
-				if (deprecated) cb.strike();
+		//print library name
+		LibraryZipFile zipFile = classInfo.getZipFile();
+		if (zipFile != null) {
+			String name = zipFile.getName();
+			if (name != null && !name.equalsIgnoreCase("java")) {
+				name = name.replace(' ', '-');
+				cb.bold();
+				cb.tag(name);
+				cb.bold();
 				cb.append(' ');
 			}
+		}
 
-			//print signature
+		//print modifiers
+		boolean deprecated = methodInfo.isDeprecated();
+		Collection<String> modifiersToPrint = new ArrayList<String>(methodInfo.getModifiers());
+		modifiersToPrint.removeAll(methodModifiersToIgnore);
+		for (String modifier : modifiersToPrint) {
 			if (deprecated) cb.strike();
-			String signature = methodInfo.getSignatureString();
-			String url = classInfo.getUrl();
-			if (url == null) {
-				cb.bold().code(signature).bold();
-			} else {
-				url += "#" + methodInfo.getUrlAnchor();
-				cb.link(new ChatBuilder().bold().code(signature).bold().toString(), url);
-			}
+			cb.tag(modifier);
 			if (deprecated) cb.strike();
-			cb.append(": ");
+			cb.append(' ');
 		}
 
-		//print the method description
-		String description = methodInfo.getDescription();
-		Paragraphs paragraphs = new Paragraphs(description);
-		paragraphs.append(paragraph, cb);
-		return cb.toString();
+		//print signature
+		if (deprecated) cb.strike();
+		String signature = methodInfo.getSignatureString();
+		String url = classInfo.getUrl();
+		if (url == null) {
+			cb.bold().code(signature).bold();
+		} else {
+			url += "#" + methodInfo.getUrlAnchor();
+			cb.link(new ChatBuilder().bold().code(signature).bold().toString(), url);
+		}
+		if (deprecated) cb.strike();
+		cb.append(": ");
+
+		return new RenderedDoc(cb.toString(), methodInfo.getDescription());
 	}
 
 	/**
@@ -398,21 +608,78 @@ public class JavaDocAccessor {
 	private String printClassChoices(Collection<String> classes) {
 		List<String> choices = new ArrayList<>(classes);
 		Collections.sort(choices);
-		prevChoices = choices;
+		return printClassChoices("Which one do you mean? (type the number)", choices, "");
+	}
+
+	/**
+	 * Prints a numbered list of classes for the user to choose from.
+	 * @param question the text to print above the list
+	 * @param classes the fully-qualified names of the classes, in the order
+	 * they should be listed
+	 * @param rest the rest of the command, to append to the chosen class (e.g.
+	 * "#add(int)")
+	 * @return the chat response
+	 */
+	private String printClassChoices(String question, List<String> classes, String rest) {
+		prevChoices = new ArrayList<>();
 		prevChoicesPinged = System.currentTimeMillis();
 
 		ChatBuilder cb = new ChatBuilder();
-		cb.append("Which one do you mean? (type the number)");
+		cb.append(question);
 
 		int count = 1;
-		for (String name : choices) {
+		for (String name : classes) {
 			cb.nl().append(count + "").append(". ").append(name);
+			prevChoices.add(name + rest);
+			count++;
+		}
+
+		return cb.toString();
+	}
+
+	/**
+	 * Prints the most popular classes to choose from when a method is declared
+	 * in too many classes to list all of its signatures.
+	 * @param commandText the command text
+	 * @param classes the fully-qualified names of the classes that declare the
+	 * method
+	 * @return the chat response
+	 */
+	private String printMethodSearchChoices(CommandTextParser commandText, Collection<String> classes) {
+		List<String> sorted = new ArrayList<>(classes);
+		sortByPopularity(sorted);
+
+		prevChoices = new ArrayList<>();
+		prevChoicesPinged = System.currentTimeMillis();
+
+		ChatBuilder cb = new ChatBuilder();
+		cb.append("That method is declared in " + classes.size() + " classes, here are the most popular ones. Which one do you mean? (type the number, or include the class name in your query)");
+
+		int count = 1;
+		for (String name : sorted.subList(0, maxMethodSearchClasses)) {
+			String choice = name + "#" + commandText.methodName;
+			cb.nl().append(count + "").append(". ").append(choice);
+			prevChoices.add(choice);
 			count++;
 		}
 
 		return cb.toString();
 	}
 
+	/**
+	 * Prints the classes to choose from when the class the user asked for
+	 * can't be found, but there are classes with similar names.
+	 * @param rest the rest of the command, after the class name (e.g.
+	 * "#add(int)")
+	 * @param suggestions the fully-qualified names of the similar classes,
+	 * most similar first
+	 * @return the chat response
+	 */
+	private String printSuggestions(String rest, List<String> suggestions) {
+		String question = "Sorry, I never heard of that class. Did you mean " + ((suggestions.size() == 1) ? "this one?" : "one of these?") + " (type the number)";
+		return printClassChoices(question, suggestions, rest);
+	}
+
 	/**
 	 * Prints the description of a class.
 	 * @param info the class info
@@ -420,65 +687,77 @@ public class JavaDocAccessor {
 	 * @return the chat response
 	 */
 	private String printClass(ClassInfo info, int paragraph) {
+		usage.record(info.getName().getFullyQualified());
+
+		RenderedDoc rendered = info.getRendered();
+		if (rendered == null) {
+			rendered = renderClass(info);
+			info.setRendered(rendered);
+			dao.reweigh(info);
+		}
+		return rendered.get(paragraph);
+	}
+
+	/**
+	 * Renders the description of a class.
+	 * @param info the class info
+	 * @return the rendered response
+	 */
+	private static RenderedDoc renderClass(ClassInfo info) {
 		ChatBuilder cb = new ChatBuilder();
-		if (paragraph == 1) {
-			//print the library name
-			LibraryZipFile zipFile = info.getZipFile();
-			if (zipFile != null) {
-				String name = zipFile.getName();
-				if (name != null && !name.equalsIgnoreCase("Java")) {
-					name = name.replace(" ", "-");
-					cb.bold();
-					cb.tag(name);
-					cb.bold();
-					cb.append(' ');
-				}
-			}
 
-			//print modifiers
-			boolean deprecated = info.isDeprecated();
-			Collection<String> infoModifiers = info.getModifiers();
-			List<String> modifiersToPrint = new ArrayList<>(classModifiers);
-			modifiersToPrint.retainAll(infoModifiers);
-
-			//add class modifiers
-			for (String classModifier : modifiersToPrint) {
-				cb.italic();
-				if (deprecated) cb.strike();
-				cb.tag(classModifier);
-				if (deprecated) cb.strike();
-				cb.italic();
+		//print the library name
+		LibraryZipFile zipFile = info.getZipFile();
+		if (zipFile != null) {
+			String name = zipFile.getName();
+			if (name != null && !name.equalsIgnoreCase("Java")) {
+				name = name.replace(" ", "-");
+				cb.bold();
+				cb.tag(name);
+				cb.bold();
 				cb.append(' ');
 			}
+		}
 
-			Collection<String> classType = new HashSet<>(classTypes);
-			classType.retainAll(infoModifiers);
-			//there should be only one remaining element in the collection, but use a foreach loop just incase
-			for (String modifier : classType) {
-				if (deprecated) cb.strike();
-				cb.tag(modifier);
-				if (deprecated) cb.strike();
-				cb.append(' ');
-			}
+		//print modifiers
+		boolean deprecated = info.isDeprecated();
+		Collection<String> infoModifiers = info.getModifiers();
+		List<String> modifiersToPrint = new ArrayList<>(classModifiers);
+		modifiersToPrint.retainAll(infoModifiers);
 
-			//print class name
+		//add class modifiers
+		for (String classModifier : modifiersToPrint) {
+			cb.italic();
 			if (deprecated) cb.strike();
-			String fullName = info.getName().getFullyQualified();
-			String url = info.getFrameUrl();
-			if (url == null) {
-				cb.bold().code(fullName).bold();
-			} else {
-				cb.link(new ChatBuilder().bold().code(fullName).bold().toString(), url);
-			}
+			cb.tag(classModifier);
 			if (deprecated) cb.strike();
-			cb.append(": ");
+			cb.italic();
+			cb.append(' ');
 		}
 
-		//print the class description
-		String description = info.getDescription();
-		Paragraphs paragraphs = new Paragraphs(description);
-		paragraphs.append(paragraph, cb);
-		return cb.toString();
+		Collection<String> classType = new HashSet<>(classTypes);
+		classType.retainAll(infoModifiers);
+		//there should be only one remaining element in the collection, but use a foreach loop just incase
+		for (String modifier : classType) {
+			if (deprecated) cb.strike();
+			cb.tag(modifier);
+			if (deprecated) cb.strike();
+			cb.append(' ');
+		}
+
+		//print class name
+		if (deprecated) cb.strike();
+		String fullName = info.getName().getFullyQualified();
+		String url = info.getFrameUrl();
+		if (url == null) {
+			cb.bold().code(fullName).bold();
+		} else {
+			cb.link(new ChatBuilder().bold().code(fullName).bold().toString(), url);
+		}
+		if (deprecated) cb.strike();
+		cb.append(": ");
+
+		return new RenderedDoc(cb.toString(), info.getDescription());
 	}
 
 	/**
@@ -493,74 +772,38 @@ public class JavaDocAccessor {
 	 */
 	private MatchingMethods getMatchingMethods(ClassInfo info, String methodName, List<String> methodParameters) throws IOException {
 		MatchingMethods matchingMethods = new MatchingMethods();
-		Set<String> matchingNameSignatures = new HashSet<>();
-
-		//search the class, all its parent classes, and all its interfaces and the interfaces of its super classes
-		LinkedList<ClassInfo> typeStack = new LinkedList<>();
-		typeStack.add(info);
-
-		while (!typeStack.isEmpty()) {
-			ClassInfo curInfo = typeStack.removeLast();
-			for (MethodInfo curMethod : curInfo.getMethods()) {
-				if (!curMethod.getName().equalsIgnoreCase(methodName)) {
-					//name doesn't match
-					continue;
-				}
-
-				String signature = curMethod.getSignature();
-				if (matchingNameSignatures.contains(signature)) {
-					//this method is already in the matching name list
-					continue;
-				}
 
-				matchingNameSignatures.add(signature);
-				matchingMethods.matchingName.add(curMethod);
-
-				if (methodParameters == null) {
-					//user is not searching based on parameters
-					continue;
-				}
+		//the methods of the class, all its parent classes, and all its interfaces and the interfaces of its super classes
+		for (MethodInfo curMethod : dao.getMethods(info, methodName)) {
+			matchingMethods.matchingName.add(curMethod);
 
-				List<ParameterInfo> curParameters = curMethod.getParameters();
-				if (curParameters.size() != methodParameters.size()) {
-					//parameter size doesn't match
-					continue;
-				}
+			if (methodParameters == null) {
+				//user is not searching based on parameters
+				continue;
+			}
 
-				//check the parameters
-				boolean exactMatch = true;
-				for (int i = 0; i < curParameters.size(); i++) {
-					ParameterInfo curParameter = curParameters.get(i);
-					String curParameterName = curParameter.getType().getSimple() + (curParameter.isArray() ? "[]" : "");
+			List<ParameterInfo> curParameters = curMethod.getParameters();
+			if (curParameters.size() != methodParameters.size()) {
+				//parameter size doesn't match
+				continue;
+			}
 
-					String methodParameter = methodParameters.get(i);
+			//check the parameters
+			boolean exactMatch = true;
+			for (int i = 0; i < curParameters.size(); i++) {
+				ParameterInfo curParameter = curParameters.get(i);
+				String curParameterName = curParameter.getType().getSimple() + (curParameter.isArray() ? "[]" : "");
 
-					if (!curParameterName.equalsIgnoreCase(methodParameter)) {
-						//parameter types don't match
-						exactMatch = false;
-						break;
-					}
-				}
-				if (exactMatch) {
-					matchingMethods.exactSignature = curMethod;
-				}
-			}
+				String methodParameter = methodParameters.get(i);
 
-			//add parent class to the stack
-			ClassName superClass = curInfo.getSuperClass();
-			if (superClass != null) {
-				ClassInfo superClassInfo = dao.getClassInfo(superClass.getFullyQualified());
-				if (superClassInfo != null) {
-					typeStack.add(superClassInfo);
+				if (!curParameterName.equalsIgnoreCase(methodParameter)) {
+					//parameter types don't match
+					exactMatch = false;
+					break;
 				}
 			}
-
-			//add interfaces to the stack
-			for (ClassName interfaceName : curInfo.getInterfaces()) {
-				ClassInfo interfaceInfo = dao.getClassInfo(interfaceName.getFullyQualified());
-				if (interfaceInfo != null) {
-					typeStack.add(interfaceInfo);
-				}
+			if (exactMatch) {
+				matchingMethods.exactSignature = curMethod;
 			}
 		}
 
@@ -646,36 +889,4 @@ public class JavaDocAccessor {
 			return exactSignature == null && matchingName.isEmpty();
 		}
 	}
-
-	private static class Paragraphs {
-		private final String paragraphs[];
-
-		public Paragraphs(String text) {
-			paragraphs = text.split("\n\n");
-		}
-
-		public int count() {
-			return paragraphs.length;
-		}
-
-		public String get(int num) {
-			return paragraphs[num - 1];
-		}
-
-		/**
-		 * Appends a paragraph to a {@link ChatBuilder}.
-		 * @param num the paragraph number
-		 * @param cb the chat builder
-		 */
-		public void append(int num, ChatBuilder cb) {
-			if (num > count()) {
-				num = count();
-			}
-
-			cb.append(get(num));
-			if (count() > 1) {
-				cb.append(" (").append(num + "").append("/").append(count() + "").append(")");
-			}
-		}
-	}
 }
@@ -1,6 +1,7 @@
 package com.gmail.inverseconduit.javadoc;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -9,82 +10,204 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.sun.nio.file.SensitivityWatchEventModifier;
 
 /**
  * Retrieves class information from Javadoc ZIP files, generated by
- * OakbotDoclet.
+ * OakbotDoclet. The ZIP files are reloaded when they change. To update a ZIP
+ * file, move the new version over it instead of overwriting it in place,
+ * because the old version is still open while the new one is loaded.
  * @author Michael Angstadt
  */
 public class JavadocDao {
 	private static final Logger logger = Logger.getLogger(JavadocDao.class.getName());
 
 	/**
-	 * Maps each Javadoc ZIP file to the list of classes it contains.
+	 * The Javadoc ZIP files, in the order they were loaded. If two ZIP files
+	 * contain the same class, the first one wins. The list and its libraries
+	 * are never modified. When a ZIP file is added, changed, or removed, the
+	 * affected library is built off to the side and a new list is published,
+	 * so lookups can read it without locking and never see a half-loaded ZIP
+	 * file.
 	 */
-	private final Multimap<LibraryZipFile, String> libraryClasses = HashMultimap.create();
+	private volatile ImmutableList<Library> libraries = ImmutableList.of();
 
 	/**
-	 * Maps class name aliases to their fully qualified names. For example, maps
-	 * "string" to "java.lang.String". Note that there can be more than one
-	 * class name mapped to an alias (for example "list" is mapped to
-	 * "java.util.List" and "java.awt.List").
+	 * Counts how often the libraries changed. Method tables that were built
+	 * from an older generation are rebuilt.
 	 */
-	private final Multimap<String, String> aliases = HashMultimap.create();
+	private volatile long generation;
 
 	/**
-	 * Caches class info that was parsed from a Javadoc ZIP file. The key is the
-	 * fully-qualified name of the class, and the value is the parsed Javadoc
-	 * info.
+	 * The default budget of the class info cache, in bytes.
 	 */
-	private final Map<String, ClassInfo> cache = new HashMap<>();
+	public static final long DEFAULT_CACHE_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * Caches class info that was parsed from a Javadoc ZIP file, keyed by the
+	 * fully-qualified name of the class.
+	 */
+	private final ClassInfoCache cache;
 
 	/**
 	 * @param dir the path to where the Javadoc ZIP files are stored.
 	 * @throws IOException if there's a problem reading the ZIP files
 	 */
 	public JavadocDao(Path dir) throws IOException {
+		this(dir, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param dir the path to where the Javadoc ZIP files are stored.
+	 * @param cacheSize the approximate memory the cached class info may take
+	 * up, in bytes
+	 * @throws IOException if there's a problem reading the ZIP files
+	 */
+	public JavadocDao(Path dir, long cacheSize) throws IOException {
+		cache = new ClassInfoCache(cacheSize);
+
+		List<Path> paths = new ArrayList<>();
 		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JavadocDao::isZipFile)) {
 			for (Path path : stream) {
-				addApi(path);
+				paths.add(path);
 			}
 		}
 
+		//load the ZIP files in parallel, then publish them all at once
+		long start = System.nanoTime();
+		List<Library> libraries;
+		try {
+			libraries = paths.parallelStream().map(path -> {
+				try {
+					return loadLibrary(path);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		this.libraries = ImmutableList.copyOf(libraries);
+		logger.info("Loaded " + libraries.size() + " Javadoc ZIP files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+
 		WatchThread watchThread = new WatchThread(dir);
 		watchThread.start();
 	}
 
 	/**
-	 * Adds a Javadoc ZIP file to the DAO.
+	 * Adds a Javadoc ZIP file to the DAO, replacing the library that was
+	 * loaded from a file with the same name.
+	 * @param zipFile the zip file (generated by OakbotDoclet)
+	 * @throws IOException if there was a problem reading the ZIP file (the
+	 * library that was loaded before is kept)
+	 */
+	private void putApi(Path zipFile) throws IOException {
+		//read the ZIP file before taking the lock, lookups keep using the old library in the meantime
+		Library library = loadLibrary(zipFile);
+
+		Library replaced = swap(zipFile.getFileName(), library);
+		if (replaced != null) {
+			retire(replaced);
+		}
+	}
+
+	/**
+	 * Reads a Javadoc ZIP file and indexes its classes.
 	 * @param zipFile the zip file (generated by OakbotDoclet)
+	 * @return the library
 	 * @throws IOException if there was a problem reading the ZIP file
 	 */
-	private void addApi(Path zipFile) throws IOException {
-		//add all the class names to the simple name index
+	private static Library loadLibrary(Path zipFile) throws IOException {
+		long start = System.nanoTime();
 		LibraryZipFile zip = new LibraryZipFile(zipFile);
-		Iterator<ClassName> it = zip.getClasses();
-		synchronized (this) {
-			while (it.hasNext()) {
-				ClassName className = it.next();
-				String fullName = className.getFullyQualified();
-				String simpleName = className.getSimple();
+		Library library;
+		try {
+			library = new Library(zip);
+		} catch (IOException | RuntimeException e) {
+			zip.close();
+			throw e;
+		}
+		logger.info("Loaded " + library.aliases.size() + " classes from " + zipFile + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+		return library;
+	}
+
+	/**
+	 * Removes a Javadoc ZIP file from the DAO.
+	 * @param zipFile the zip file
+	 * @return false if the ZIP file was not loaded
+	 */
+	private boolean removeApi(Path zipFile) {
+		Library removed = swap(zipFile.getFileName(), null);
+		if (removed == null) {
+			return false;
+		}
+
+		retire(removed);
+		return true;
+	}
 
-				aliases.put(simpleName.toLowerCase(), fullName);
-				aliases.put(simpleName, fullName);
-				aliases.put(fullName.toLowerCase(), fullName);
-				aliases.put(fullName, fullName);
-				libraryClasses.put(zip, fullName);
+	/**
+	 * Publishes a new list of libraries in which the library that was loaded
+	 * from the given file is replaced. Only copies the references to the
+	 * libraries, so it takes next to no time.
+	 * @param fileName the name of the ZIP file
+	 * @param library the new library or null to remove the library
+	 * @return the library that was replaced or null if there was none
+	 */
+	private synchronized Library swap(Path fileName, Library library) {
+		ImmutableList.Builder<Library> libraries = ImmutableList.builder();
+		Library replaced = null;
+		for (Library existing : this.libraries) {
+			if (replaced == null && existing.zip.getPath().getFileName().equals(fileName)) {
+				replaced = existing;
+				if (library != null) {
+					libraries.add(library);
+				}
+			} else {
+				libraries.add(existing);
 			}
 		}
+		if (replaced == null && library != null) {
+			libraries.add(library);
+		}
+
+		this.libraries = libraries.build();
+		generation++;
+		return replaced;
+	}
+
+	/**
+	 * Cleans up after a library that is no longer published. Lookups that
+	 * still use the library when its ZIP file is closed are retried.
+	 * @param library the library
+	 */
+	private void retire(Library library) {
+		cache.invalidate(library.aliases.getClassNames());
+
+		try {
+			library.zip.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not close ZIP file " + library.zip.getPath() + ".", e);
+		}
 	}
 
 	/**
@@ -96,11 +219,12 @@ public class JavadocDao {
 	 * @throws MultipleClassesFoundException if a simple name was passed into
 	 * this method and multiple classes were found that have that name
 	 */
-	public synchronized ClassInfo getClassInfo(String className) throws IOException, MultipleClassesFoundException {
-		Collection<String> names = aliases.get(className);
+	public ClassInfo getClassInfo(String className) throws IOException, MultipleClassesFoundException {
+		ImmutableList<Library> libraries = this.libraries;
+		Collection<String> names = aliases(libraries, className, true);
 		if (names.isEmpty()) {
 			//try case-insensitive search
-			names = aliases.get(className.toLowerCase());
+			names = aliases(libraries, className, false);
 		}
 
 		if (names.isEmpty()) {
@@ -113,24 +237,224 @@ public class JavadocDao {
 			throw new MultipleClassesFoundException(names);
 		}
 
-		className = names.iterator().next();
+		String fullName = names.iterator().next();
+		LibraryZipFile zip = null;
+		for (Library library : libraries) {
+			if (library.aliases.contains(fullName)) {
+				zip = library.zip;
+				break;
+			}
+		}
 
-		//check the cache
-		ClassInfo info = cache.get(className);
-		if (info != null) {
+		//parse the class info from the Javadocs, unless it's cached
+		ClassInfoCache.Loader loader = zip::getClassInfo;
+		try {
+			ClassInfo info = cache.get(fullName, loader);
+			if (info != null && info.getZipFile() != zip) {
+				//a lookup that started before the ZIP file was reloaded cached the old class
+				cache.invalidate(Collections.singleton(fullName));
+				info = cache.get(fullName, loader);
+			}
 			return info;
+		} catch (IOException | IllegalStateException e) {
+			if (this.libraries == libraries) {
+				throw e;
+			}
+
+			//the ZIP file was reloaded and closed during the lookup
+			return getClassInfo(className);
+		}
+	}
+
+	/**
+	 * Loads classes and their ancestors into the cache in the background, so
+	 * the first lookups of popular classes are fast. The classes are loaded in
+	 * parallel.
+	 * @param classNames the fully-qualified names of the classes, most
+	 * important first. Classes that don't exist are ignored.
+	 * @return completes when all classes are loaded
+	 */
+	public CompletableFuture<Void> warmUp(Collection<String> classNames) {
+		List<String> names = new ArrayList<>(classNames);
+		return CompletableFuture.runAsync(() -> {
+			long start = System.nanoTime();
+			names.parallelStream().forEach(className -> {
+				try {
+					ClassInfo info = getClassInfo(className);
+					if (info != null) {
+						methodTable(info, new HashSet<>());
+					}
+				} catch (IOException | RuntimeException e) {
+					logger.log(Level.WARNING, "Could not warm up class " + className + ".", e);
+				}
+			});
+			logger.info("Warmed up " + names.size() + " classes in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+		});
+	}
+
+	/**
+	 * Gets the methods of a class that have the given name, including the
+	 * methods it inherits from its super classes and interfaces. A method that
+	 * is overridden is only returned once, the class's own version wins.
+	 * @param info the class
+	 * @param methodName the method name (case insensitive)
+	 * @return the methods, in the order the class hierarchy is searched
+	 * @throws IOException if there's a problem reading the Javadocs of an
+	 * ancestor class
+	 */
+	public List<MethodInfo> getMethods(ClassInfo info, String methodName) throws IOException {
+		return methodTable(info, new HashSet<>()).getMethods(methodName);
+	}
+
+	/**
+	 * Gets the method table of a class, building it from the tables of its
+	 * ancestors if it's missing or out of date.
+	 * @param info the class
+	 * @param path the classes whose tables are being built, to guard against
+	 * cycles in the class hierarchy
+	 * @return the method table
+	 * @throws IOException if there's a problem reading the Javadocs of an
+	 * ancestor class
+	 */
+	private MethodTable methodTable(ClassInfo info, Set<String> path) throws IOException {
+		//read the generation before the ancestors are looked up, so a table that is built during a reload counts as out of date
+		long generation = this.generation;
+		MethodTable table = info.getMethodTable();
+		if (table != null && table.getGeneration() == generation) {
+			return table;
+		}
+
+		String fullName = info.getName().getFullyQualified();
+		path.add(fullName);
+
+		Map<String, MethodInfo> signatures = new LinkedHashMap<>();
+		for (MethodInfo method : info.getMethods()) {
+			signatures.putIfAbsent(method.getSignature(), method);
+		}
+
+		//search the interfaces from last to first, then the super class
+		List<ClassName> parents = new ArrayList<>(info.getInterfaces());
+		Collections.reverse(parents);
+		if (info.getSuperClass() != null) {
+			parents.add(info.getSuperClass());
+		}
+		for (ClassName parent : parents) {
+			if (path.contains(parent.getFullyQualified())) {
+				continue;
+			}
+
+			ClassInfo parentInfo = getClassInfo(parent.getFullyQualified());
+			if (parentInfo == null) {
+				continue;
+			}
+
+			for (Map.Entry<String, MethodInfo> entry : methodTable(parentInfo, path).getSignatures().entrySet()) {
+				signatures.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+		}
+
+		path.remove(fullName);
+		table = new MethodTable(generation, signatures);
+		info.setMethodTable(table);
+		cache.reweigh(info);
+		return table;
+	}
+
+	/**
+	 * Finds the classes whose simple or fully-qualified name starts with the
+	 * given prefix, in all libraries.
+	 * @param prefix the prefix (case insensitive)
+	 * @return the fully-qualified names of the classes
+	 */
+	public Set<String> findClassesByPrefix(String prefix) {
+		Set<String> classNames = new LinkedHashSet<>();
+		for (Library library : libraries) {
+			classNames.addAll(library.aliases.getByPrefix(prefix));
+		}
+		return classNames;
+	}
+
+	/**
+	 * Finds the classes that declare a method with the given name, in all
+	 * libraries.
+	 * @param methodName the method name (case insensitive)
+	 * @return the fully-qualified names of the classes
+	 */
+	public Collection<String> findMethod(String methodName) {
+		String name = methodName.toLowerCase();
+		ImmutableList<Library> libraries = this.libraries;
+		if (libraries.size() == 1) {
+			return libraries.get(0).methods.get(name);
 		}
 
-		//parse the class info from the Javadocs
-		for (LibraryZipFile zip : libraryClasses.keys()) {
-			info = zip.getClassInfo(className);
-			if (info != null) {
-				cache.put(className, info);
-				return info;
+		Set<String> classNames = new LinkedHashSet<>();
+		for (Library library : libraries) {
+			classNames.addAll(library.methods.get(name));
+		}
+		return classNames;
+	}
+
+	/**
+	 * Finds the classes whose names are similar to the given name, for when
+	 * {@link #getClassInfo} doesn't find anything (e.g. "ArrayLsit" is similar
+	 * to "java.util.ArrayList").
+	 * @param className a fully-qualified or simple class name (case
+	 * insensitive)
+	 * @param limit the maximum number of classes to return
+	 * @return the fully-qualified names of the classes, most similar first
+	 */
+	public List<String> suggestClasses(String className, int limit) {
+		String query = className.toLowerCase();
+		boolean qualified = query.indexOf('.') >= 0;
+
+		//one typo in very short names already matches too many classes
+		int maxDistance = (query.length() <= 4) ? 1 : 2;
+
+		Map<String, Integer> distances = new HashMap<>();
+		for (Library library : libraries) {
+			BkTree<String> tree = qualified ? library.fullNames : library.simpleNames;
+			for (BkTree.Match<String> match : tree.search(query, maxDistance)) {
+				for (String fullName : match.getValues()) {
+					distances.merge(fullName, match.getDistance(), Math::min);
+				}
 			}
 		}
 
-		return null;
+		List<String> suggestions = new ArrayList<>(distances.keySet());
+		suggestions.sort((a, b) -> {
+			int c = distances.get(a) - distances.get(b);
+			return (c == 0) ? a.compareTo(b) : c;
+		});
+		return (suggestions.size() > limit) ? suggestions.subList(0, limit) : suggestions;
+	}
+
+	private static Collection<String> aliases(ImmutableList<Library> libraries, String alias, boolean exact) {
+		if (libraries.size() == 1) {
+			return libraries.get(0).aliases.get(alias, exact);
+		}
+
+		Set<String> names = new LinkedHashSet<>();
+		for (Library library : libraries) {
+			names.addAll(library.aliases.get(alias, exact));
+		}
+		return names;
+	}
+
+	/**
+	 * Updates the weight of a class in the class info cache, after something
+	 * was attached to it (like a rendered chat response).
+	 * @param info the class
+	 */
+	void reweigh(ClassInfo info) {
+		cache.reweigh(info);
+	}
+
+	/**
+	 * Gets the statistics of the class info cache.
+	 * @return the statistics
+	 */
+	public ClassInfoCache.Stats getCacheStats() {
+		return cache.getStats();
 	}
 
 	private class WatchThread extends Thread {
@@ -147,7 +471,7 @@ public class JavadocDao {
 
 			this.dir = dir;
 			watcher = FileSystems.getDefault().newWatchService();
-			dir.register(watcher, new WatchEvent.Kind[] { StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY }, SensitivityWatchEventModifier.HIGH);
+			dir.register(watcher, new WatchEvent.Kind<?>[] { StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY }, SensitivityWatchEventModifier.HIGH);
 		}
 
 		@Override
@@ -174,20 +498,16 @@ public class JavadocDao {
 
 					file = dir.resolve(file);
 
-					if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-						add(file);
-						continue;
-					}
-
-					if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-						remove(file);
-						continue;
-					}
-
-					if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-						remove(file);
-						add(file);
-						continue;
+					try {
+						if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+							remove(file);
+						} else {
+							//ENTRY_CREATE or ENTRY_MODIFY
+							load(file);
+						}
+					} catch (RuntimeException e) {
+						//keep watching
+						logger.log(Level.SEVERE, "Could not process change to ZIP file " + file + ".", e);
 					}
 				}
 
@@ -198,40 +518,91 @@ public class JavadocDao {
 			}
 		}
 
-		private void add(Path file) {
+		private void load(Path file) {
 			logger.info("Loading ZIP file " + file + "...");
 			try {
-				addApi(file);
+				putApi(file);
 				logger.info("ZIP file " + file + " loaded.");
 			} catch (IOException e) {
-				logger.log(Level.SEVERE, "Could not parse Javadoc ZIP file.  ZIP file was not added to the JavadocDao.", e);
+				logger.log(Level.SEVERE, "Could not parse Javadoc ZIP file.  The JavadocDao still uses the previous version of the file, if any.", e);
 			}
 		}
 
 		private void remove(Path file) {
 			logger.info("Removing ZIP file " + file + "...");
-			Path fileName = file.getFileName();
-
-			synchronized (JavadocDao.this) {
-				//find the corresponding LibraryZipFile object
-				LibraryZipFile found = null;
-				for (LibraryZipFile zip : libraryClasses.keys()) {
-					if (zip.getPath().getFileName().equals(fileName)) {
-						found = zip;
-						break;
-					}
-				}
-				if (found == null) {
-					logger.warning("Tried to remove ZIP file \"" + file + "\", but it was not found in the JavadocDao.");
-					return;
-				}
+			if (removeApi(file)) {
+				logger.info("ZIP file " + file + " removed.");
+			} else {
+				logger.warning("Tried to remove ZIP file \"" + file + "\", but it was not found in the JavadocDao.");
+			}
+		}
+	}
+
+	/**
+	 * An immutable index of the classes in a Javadoc ZIP file.
+	 */
+	private static class Library {
+		private final LibraryZipFile zip;
+
+		/**
+		 * The classes in the ZIP file, by simple and fully qualified name.
+		 */
+		private final AliasIndex aliases;
+
+		/**
+		 * The lower-cased simple and fully qualified class names, for finding
+		 * names that are similar to misspelled ones.
+		 */
+		private final BkTree<String> simpleNames = new BkTree<>(), fullNames = new BkTree<>();
+
+		/**
+		 * Maps lower-cased method names to the fully qualified names of the
+		 * classes that declare them.
+		 */
+		private final ImmutableSetMultimap<String, String> methods;
+
+		/**
+		 * @param zip the ZIP file
+		 * @throws IOException if there's a problem reading a class from the ZIP
+		 * file
+		 */
+		public Library(LibraryZipFile zip) throws IOException {
+			this.zip = zip;
+
+			AliasIndex.Builder aliases = new AliasIndex.Builder();
+			Iterator<ClassName> it = zip.getClasses();
+			while (it.hasNext()) {
+				ClassName className = it.next();
+				String fullName = className.getFullyQualified();
+				aliases.add(className);
 
-				Collection<String> classNames = libraryClasses.removeAll(found);
-				aliases.values().removeAll(classNames);
-				cache.keySet().removeAll(classNames);
+				simpleNames.add(aliases.intern(className.getSimple().toLowerCase()), fullName);
+				fullNames.add(aliases.intern(fullName.toLowerCase()), fullName);
 			}
+			this.aliases = aliases.build();
 
-			logger.info("ZIP file " + file + " removed.");
+			//only the method names are read from each class, which is spread across all cores
+			List<Set<String>> methodNames;
+			try {
+				methodNames = this.aliases.getClassNames().parallelStream().map(fullName -> {
+					try {
+						return zip.getMethodNames(fullName);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}).collect(Collectors.toList());
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			ImmutableSetMultimap.Builder<String, String> methods = ImmutableSetMultimap.builder();
+			int i = 0;
+			for (String fullName : this.aliases.getClassNames()) {
+				for (String methodName : methodNames.get(i++)) {
+					methods.put(methodName.toLowerCase(), fullName);
+				}
+			}
+			this.methods = methods.build();
 		}
 	}
 
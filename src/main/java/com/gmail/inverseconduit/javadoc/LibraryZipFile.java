@@ -1,18 +1,22 @@
 package com.gmail.inverseconduit.javadoc;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.DirectoryStream;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
@@ -20,10 +24,12 @@ import com.gmail.inverseconduit.utils.DocumentWrapper;
 
 /**
  * Represents a ZIP file that was generated by OakbotDoclet, which contains
- * Javadoc information.
+ * Javadoc information. The ZIP file is kept open and its entries are indexed
+ * when it is opened, so looking up a class only has to inflate the class's
+ * entry. Classes can be looked up by multiple threads at the same time.
  * @author Michael Angstadt
  */
-public class LibraryZipFile {
+public class LibraryZipFile implements Closeable {
 	private static final String EXTENSION = ".xml";
 	private static final String INFO_FILENAME = "info" + EXTENSION;
 
@@ -33,28 +39,30 @@ public class LibraryZipFile {
 	private final String version;
 	private final String projectUrl;
 
+	/**
+	 * The open ZIP file. The JDK reads (and memory-maps) its central directory
+	 * once, and reading entries from it is thread-safe.
+	 */
+	private final ZipFile zipFile;
+
+	/**
+	 * Maps the fully-qualified name of each class in the library to its ZIP
+	 * entry. Not modified after construction.
+	 */
+	private final Map<String, ZipEntry> classEntries;
+
+	/**
+	 * @param file the ZIP file
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
 	public LibraryZipFile(Path file) throws IOException {
 		this.file = file.toRealPath();
+		zipFile = new ZipFile(this.file.toFile());
 
-		try (FileSystem fs = FileSystems.newFileSystem(file, null)) {
-			Path info = fs.getPath("/" + INFO_FILENAME);
-			if (!Files.exists(info)) {
-				baseUrl = name = version = projectUrl = null;
-				return;
-			}
-
-			Element infoElement;
-			try (InputStream in = Files.newInputStream(info)) {
-				DocumentWrapper document = new DocumentWrapper(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in));
-				infoElement = document.element("/info");
-			} catch (ParserConfigurationException e) {
-				//should never be thrown
-				throw new RuntimeException(e);
-			} catch (SAXException e) {
-				//XML parse error
-				throw new IOException(e);
-			}
+		try {
+			classEntries = indexClasses(zipFile);
 
+			Element infoElement = readInfo(zipFile);
 			if (infoElement == null) {
 				baseUrl = name = version = projectUrl = null;
 				return;
@@ -75,6 +83,44 @@ public class LibraryZipFile {
 
 			String version = infoElement.getAttribute("version");
 			this.version = version.isEmpty() ? null : version;
+		} catch (IOException | RuntimeException e) {
+			zipFile.close();
+			throw e;
+		}
+	}
+
+	private static Map<String, ZipEntry> indexClasses(ZipFile zipFile) {
+		Map<String, ZipEntry> classEntries = new HashMap<>();
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String name = entry.getName();
+
+			//only the files in the root directory are classes
+			if (entry.isDirectory() || name.indexOf('/') >= 0 || !name.endsWith(EXTENSION) || name.equals(INFO_FILENAME)) {
+				continue;
+			}
+
+			classEntries.put(name.substring(0, name.length() - EXTENSION.length()), entry);
+		}
+		return Collections.unmodifiableMap(classEntries);
+	}
+
+	private static Element readInfo(ZipFile zipFile) throws IOException {
+		ZipEntry info = zipFile.getEntry(INFO_FILENAME);
+		if (info == null) {
+			return null;
+		}
+
+		try (InputStream in = zipFile.getInputStream(info)) {
+			DocumentWrapper document = new DocumentWrapper(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in));
+			return document.element("/info");
+		} catch (ParserConfigurationException e) {
+			//should never be thrown
+			throw new RuntimeException(e);
+		} catch (SAXException e) {
+			//XML parse error
+			throw new IOException(e);
 		}
 	}
 
@@ -105,46 +151,18 @@ public class LibraryZipFile {
 	/**
 	 * Gets a list of all classes that are in the library.
 	 * @return the fully-qualified names of all the classes
-	 * @throws IOException if there's a problem reading the ZIP file
 	 */
-	public Iterator<ClassName> getClasses() throws IOException {
-		final FileSystem fs = FileSystems.newFileSystem(file, null);
-		final DirectoryStream<Path> stream = Files.newDirectoryStream(fs.getPath("/"), entry -> {
-			String name = entry.getFileName().toString();
-			if (!name.endsWith(EXTENSION)) {
-				return false;
-			}
-
-			return !name.equals(INFO_FILENAME);
-		});
-
-		final Iterator<Path> it = stream.iterator();
+	public Iterator<ClassName> getClasses() {
+		final Iterator<String> it = classEntries.keySet().iterator();
 		return new Iterator<ClassName>() {
 			@Override
 			public boolean hasNext() {
-				boolean hasNext = it.hasNext();
-				if (!hasNext) {
-					try {
-						stream.close();
-					} catch (IOException e) {
-						//ignore
-					}
-					try {
-						fs.close();
-					} catch (IOException e) {
-						//ignore
-					}
-				}
-
-				return hasNext;
+				return it.hasNext();
 			}
 
 			@Override
 			public ClassName next() {
-				Path file = it.next();
-				String fileName = file.getFileName().toString();
-				String fullName = fileName.substring(0, fileName.length() - EXTENSION.length());
-				return new ClassName(fullName);
+				return new ClassName(it.next());
 			}
 		};
 	}
@@ -157,20 +175,36 @@ public class LibraryZipFile {
 	 * parsing the XML
 	 */
 	public ClassInfo getClassInfo(String fullName) throws IOException {
-		try (FileSystem fs = FileSystems.newFileSystem(file, null)) {
-			Path path = fs.getPath(fullName + EXTENSION);
-			if (!Files.exists(path)) {
-				return null;
-			}
+		ZipEntry entry = classEntries.get(fullName);
+		if (entry == null) {
+			return null;
+		}
 
-			Document document;
-			try (InputStream in = Files.newInputStream(path)) {
-				document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
-			} catch (SAXException | ParserConfigurationException e) {
-				throw new IOException(e);
-			}
+		try (InputStream in = zipFile.getInputStream(entry)) {
+			return new ClassInfoStaxParser(in, this).parse();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Gets the names of a class's constructors and methods, without parsing
+	 * the rest of the class.
+	 * @param fullName the fully-qualifed class name (e.g. "java.lang.String")
+	 * @return the names or null if the class was not found
+	 * @throws IOException if there was a problem reading from the ZIP file or
+	 * parsing the XML
+	 */
+	public Set<String> getMethodNames(String fullName) throws IOException {
+		ZipEntry entry = classEntries.get(fullName);
+		if (entry == null) {
+			return null;
+		}
 
-			return new ClassInfoXmlParser(document, this).parse();
+		try (InputStream in = zipFile.getInputStream(entry)) {
+			return new ClassInfoStaxParser(in, this).parseMethodNames();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
 		}
 	}
 
@@ -210,6 +244,15 @@ public class LibraryZipFile {
 		return file;
 	}
 
+	/**
+	 * Closes the ZIP file. Classes can't be looked up afterwards.
+	 * @throws IOException if there's a problem closing the ZIP file
+	 */
+	@Override
+	public void close() throws IOException {
+		zipFile.close();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,70 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The methods of a class, including the methods it inherits from its super
+ * classes and interfaces. A method that is overridden is only included once.
+ * Built by {@link JavadocDao} and stored in the {@link ClassInfo} object.
+ * @author Michael Angstadt
+ */
+final class MethodTable {
+	private final long generation;
+
+	/**
+	 * Maps method signatures to methods, in the order the class hierarchy is
+	 * searched.
+	 */
+	private final ImmutableMap<String, MethodInfo> signatures;
+
+	/**
+	 * Maps lower-cased method names to methods.
+	 */
+	private final ImmutableListMultimap<String, MethodInfo> names;
+
+	/**
+	 * @param generation the generation of the {@link JavadocDao}'s libraries
+	 * that the table was built from
+	 * @param signatures the methods, keyed by signature
+	 */
+	public MethodTable(long generation, Map<String, MethodInfo> signatures) {
+		this.generation = generation;
+		this.signatures = ImmutableMap.copyOf(signatures);
+
+		ImmutableListMultimap.Builder<String, MethodInfo> names = ImmutableListMultimap.builder();
+		for (MethodInfo method : this.signatures.values()) {
+			names.put(method.getName().toLowerCase(), method);
+		}
+		this.names = names.build();
+	}
+
+	/**
+	 * Gets the generation of the libraries that the table was built from. The
+	 * table is out of date if any library changed since.
+	 * @return the generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Gets all methods, keyed by signature.
+	 * @return the methods, in the order the class hierarchy is searched
+	 */
+	public ImmutableMap<String, MethodInfo> getSignatures() {
+		return signatures;
+	}
+
+	/**
+	 * Gets the methods with the given name.
+	 * @param name the method name (case insensitive)
+	 * @return the methods, in the order the class hierarchy is searched
+	 */
+	public List<MethodInfo> getMethods(String name) {
+		return names.get(name.toLowerCase());
+	}
+}
@@ -0,0 +1,87 @@
+package com.gmail.inverseconduit.javadoc;
+
+import com.gmail.inverseconduit.utils.ChatBuilder;
+
+/**
+ * The chat response for a class or method, split into paragraphs. The
+ * description is split once, and the response for each paragraph is built the
+ * first time it's asked for, so repeat lookups and paging through the
+ * paragraphs don't have to render anything.<br />
+ * <br />
+ * Thread-safe. Two threads asking for the same paragraph at the same time
+ * might both build it, but they build the same string.
+ * @author Michael Angstadt
+ */
+final class RenderedDoc {
+	/**
+	 * The markup that goes in front of the first paragraph (e.g. the
+	 * modifiers and the class name).
+	 */
+	private final String header;
+
+	private final String[] paragraphs;
+
+	/**
+	 * The responses that were built so far, indexed by paragraph.
+	 */
+	private final String[] responses;
+
+	/**
+	 * @param header the markup that goes in front of the first paragraph
+	 * @param description the description
+	 */
+	public RenderedDoc(String header, String description) {
+		this.header = header;
+		paragraphs = description.split("\n\n");
+		responses = new String[paragraphs.length];
+	}
+
+	/**
+	 * Gets the number of paragraphs.
+	 * @return the number of paragraphs
+	 */
+	public int getParagraphCount() {
+		return paragraphs.length;
+	}
+
+	/**
+	 * Gets the number of characters of the header and all paragraphs.
+	 * @return the number of characters
+	 */
+	public int getLength() {
+		int length = header.length();
+		for (String paragraph : paragraphs) {
+			length += paragraph.length();
+		}
+		return length;
+	}
+
+	/**
+	 * Gets the response for a paragraph.
+	 * @param paragraph the paragraph number (starting at 1). If it's past the
+	 * last paragraph, the last paragraph is returned.
+	 * @return the chat response
+	 */
+	public String get(int paragraph) {
+		int index = Math.min(paragraph, paragraphs.length) - 1;
+		String response = responses[index];
+		if (response == null) {
+			response = build(index);
+			responses[index] = response;
+		}
+		return response;
+	}
+
+	private String build(int index) {
+		ChatBuilder cb = new ChatBuilder();
+		if (index == 0) {
+			cb.append(header);
+		}
+
+		cb.append(paragraphs[index]);
+		if (paragraphs.length > 1) {
+			cb.append(" (").append((index + 1) + "").append("/").append(paragraphs.length + "").append(")");
+		}
+		return cb.toString();
+	}
+}
@@ -0,0 +1,461 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.GString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassCodeExpressionTransformer;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.MethodPointerExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
+import org.codehaus.groovy.syntax.SyntaxException;
+import org.codehaus.groovy.syntax.Types;
+
+import com.gmail.inverseconduit.ScriptBase;
+import com.gmail.inverseconduit.security.ScriptSecurityPolicy;
+
+/**
+ * Sandboxes Groovy scripts when they are compiled rather than when they run
+ * (see {@link SandboxMode#AST}):
+ * <ul>
+ * <li>Scripts may only refer to whitelisted classes, whether by import, by
+ * name, by constructor call, by cast or by coercion. The classes they declare
+ * may only extend and implement whitelisted classes.</li>
+ * <li>Methods and properties that open the door to reflection, class loading,
+ * processes or the file system are rejected by name, even on receivers whose
+ * type is only known at run time. So are method and property names that are
+ * computed at run time, and direct field access.</li>
+ * <li>Subscripts like <tt>x['name']</tt> read and write properties, so their
+ * keys are checked against the same names. Keys that are computed at run
+ * time are checked when the script runs.</li>
+ * <li>Annotations are only allowed from a short whitelist, since AST
+ * transformations like <tt>@ASTTest</tt> or <tt>@Grab</tt> run code in the
+ * compiler.</li>
+ * <li>Scripts are loaded by a class loader that refuses to link against
+ * dangerous classes, in case one slips through the checks above.</li>
+ * </ul>
+ * This is a best-effort sandbox, not a replacement for the security manager.
+ * It must only be used with worker JVMs (see {@link ScriptWorkerPool}), so
+ * that a script that crashes or exhausts its JVM doesn't take the bot with
+ * it. The workers run as the same OS user as the bot and without a security
+ * manager, so they do <b>not</b> contain a script that gets past these checks:
+ * it can do anything the bot's user can. Run the bot as a user (or in a
+ * container) that can't reach anything scripts must not touch.
+ */
+public final class AstSandbox {
+
+    /**
+     * The java.lang classes scripts may use.
+     */
+    private static final List<String> LANG_CLASSES   = Arrays.asList("Object", "String", "StringBuilder", "StringBuffer", "CharSequence", "Math", "StrictMath", "Number", "Integer", "Long", "Short",
+                                                         "Byte", "Double", "Float", "Boolean", "Character", "Comparable", "Iterable", "Runnable", "Enum", "Void", "Throwable", "Exception",
+                                                         "RuntimeException", "ArithmeticException", "ArrayIndexOutOfBoundsException", "ClassCastException", "IllegalArgumentException",
+                                                         "IllegalStateException", "IndexOutOfBoundsException", "NullPointerException", "NumberFormatException",
+                                                         "UnsupportedOperationException");
+
+    /**
+     * The classes scripts may use from other packages, by package. Only
+     * individual classes are whitelisted, never whole packages: classes like
+     * {@link java.util.Formatter} or {@link java.util.Scanner} open files when
+     * they are given a name or a path, so they are left out, along with
+     * anything else that reaches the file system, loads classes or resources
+     * or starts threads.
+     */
+    private static final Map<String, List<String>> PACKAGE_CLASSES = new LinkedHashMap<>();
+
+    static {
+        PACKAGE_CLASSES.put("java.util", Arrays.asList("Collection", "List", "Set", "Map", "Map$Entry", "Queue", "Deque", "SortedSet", "SortedMap", "NavigableSet",
+                "NavigableMap", "Iterator", "ListIterator", "ArrayList", "LinkedList", "HashSet", "LinkedHashSet", "TreeSet", "HashMap", "LinkedHashMap", "TreeMap",
+                "IdentityHashMap", "EnumMap", "EnumSet", "ArrayDeque", "PriorityQueue", "Stack", "Vector", "Hashtable", "BitSet", "AbstractCollection", "AbstractList",
+                "AbstractSet", "AbstractMap", "Collections", "Arrays", "Objects", "Comparator", "Optional", "OptionalInt", "OptionalLong", "OptionalDouble", "Random",
+                "UUID", "StringJoiner", "StringTokenizer", "Base64", "Base64$Encoder", "Base64$Decoder", "Date", "Calendar", "GregorianCalendar", "TimeZone", "Locale",
+                "Currency", "IntSummaryStatistics", "LongSummaryStatistics", "DoubleSummaryStatistics", "NoSuchElementException", "ConcurrentModificationException"));
+        PACKAGE_CLASSES.put("java.util.function", Arrays.asList("Function", "BiFunction", "UnaryOperator", "BinaryOperator", "Supplier", "Consumer", "BiConsumer",
+                "Predicate", "BiPredicate", "IntFunction", "IntPredicate", "IntUnaryOperator", "IntBinaryOperator", "IntConsumer", "IntSupplier", "LongFunction",
+                "LongPredicate", "LongUnaryOperator", "LongBinaryOperator", "DoubleFunction", "DoublePredicate", "DoubleUnaryOperator", "DoubleBinaryOperator",
+                "ToIntFunction", "ToLongFunction", "ToDoubleFunction", "BooleanSupplier"));
+        PACKAGE_CLASSES.put("java.util.stream", Arrays.asList("Stream", "IntStream", "LongStream", "DoubleStream", "Collector", "Collectors"));
+        PACKAGE_CLASSES.put("java.util.regex", Arrays.asList("Pattern", "Matcher", "MatchResult", "PatternSyntaxException"));
+        PACKAGE_CLASSES.put("java.math", Arrays.asList("BigInteger", "BigDecimal", "MathContext", "RoundingMode"));
+        PACKAGE_CLASSES.put("java.text", Arrays.asList("Format", "NumberFormat", "DecimalFormat", "DecimalFormatSymbols", "DateFormat", "SimpleDateFormat",
+                "MessageFormat", "ChoiceFormat", "Collator", "Normalizer", "Normalizer$Form", "BreakIterator", "ParseException"));
+        PACKAGE_CLASSES.put("java.time", Arrays.asList("Instant", "Duration", "Period", "LocalDate", "LocalTime", "LocalDateTime", "ZonedDateTime", "OffsetDateTime",
+                "OffsetTime", "ZoneId", "ZoneOffset", "DayOfWeek", "Month", "Year", "YearMonth", "MonthDay", "Clock", "DateTimeException"));
+        PACKAGE_CLASSES.put("java.time.format", Arrays.asList("DateTimeFormatter", "DateTimeFormatterBuilder", "FormatStyle", "TextStyle", "DateTimeParseException"));
+        PACKAGE_CLASSES.put("java.time.temporal", Arrays.asList("ChronoUnit", "ChronoField", "Temporal", "TemporalUnit", "TemporalField", "TemporalAmount",
+                "TemporalAdjuster", "TemporalAdjusters", "IsoFields", "WeekFields"));
+    }
+
+    /**
+     * The Groovy classes scripts may use.
+     */
+    private static final List<String> GROOVY_CLASSES = Arrays.asList("groovy.lang.Closure", "groovy.lang.Range", "groovy.lang.IntRange", "groovy.lang.ObjectRange",
+                                                         "groovy.lang.GString", "groovy.lang.Tuple", "groovy.transform.CompileStatic", "groovy.transform.TypeChecked",
+                                                         "groovy.transform.Field", "groovy.transform.ToString", "groovy.transform.EqualsAndHashCode", "groovy.transform.Canonical",
+                                                         "groovy.transform.TupleConstructor", "groovy.transform.Immutable", "groovy.transform.Memoized",
+                                                         "groovy.transform.TailRecursive");
+
+    /**
+     * The classes scripts may use.
+     */
+    private static final Set<String>  CLASSES        = new HashSet<>();
+
+    static {
+        for (String name : LANG_CLASSES) {
+            CLASSES.add("java.lang." + name);
+        }
+        for (Map.Entry<String, List<String>> entry : PACKAGE_CLASSES.entrySet()) {
+            for (String name : entry.getValue()) {
+                CLASSES.add(entry.getKey() + "." + name);
+            }
+        }
+        CLASSES.addAll(GROOVY_CLASSES);
+        CLASSES.add(ScriptBase.class.getName());
+    }
+
+    /**
+     * The annotations scripts may use. AST transformations not on this list
+     * could run arbitrary code while the script is compiled.
+     */
+    private static final Set<String>  ANNOTATIONS    = new HashSet<>(GROOVY_CLASSES.subList(GROOVY_CLASSES.indexOf("groovy.transform.CompileStatic"), GROOVY_CLASSES.size()));
+
+    /**
+     * The methods and properties scripts may not use, whatever they are called
+     * on.
+     */
+    private static final Set<String>  DENIED_NAMES   = new HashSet<>(Arrays.asList(
+                                                         //reflection and class loading
+                                                         "getClass", "class", "getMetaClass", "metaClass", "setMetaClass", "getClassLoader", "classLoader",
+                                                         "getProtectionDomain", "protectionDomain", "forName", "newInstance", "getMethod", "getMethods", "methods",
+                                                         "getDeclaredMethod", "getDeclaredMethods", "declaredMethods", "getConstructor", "getConstructors", "constructors",
+                                                         "getDeclaredConstructor", "getDeclaredConstructors", "declaredConstructors", "getField", "getFields", "fields",
+                                                         "getDeclaredField", "getDeclaredFields", "declaredFields", "setAccessible", "invoke", "invokeMethod",
+                                                         "invokeStaticMethod", "invokeConstructor", "getProperty", "setProperty", "getProperties", "properties", "asType",
+                                                         "loadClass", "defineClass", "parseClass", "evaluate",
+                                                         //the meta class hands out methods and properties that can be invoked on anything
+                                                         "getMetaMethod", "getMetaMethods", "metaMethods", "getStaticMetaMethod", "pickMethod", "respondsTo",
+                                                         "doMethodInvoke", "hasProperty", "getMetaProperty", "getMetaPropertyValues", "metaPropertyValues",
+                                                         //subscripts, called by name
+                                                         "getAt", "putAt",
+                                                         //processes, the JVM and the outside world
+                                                         "execute", "exec", "getRuntime", "runtime", "exit", "halt", "load", "loadLibrary", "toURL", "toURI",
+                                                         //files and resources, in case a script gets hold of one
+                                                         "toPath", "toFile", "getResource", "getResourceAsStream", "newInputStream", "newOutputStream", "newReader",
+                                                         "newWriter", "newPrintWriter", "newDataInputStream", "newDataOutputStream", "newObjectInputStream",
+                                                         "newObjectOutputStream", "withReader", "withWriter", "withWriterAppend", "withPrintWriter", "withInputStream",
+                                                         "withOutputStream", "withDataInputStream", "withDataOutputStream", "withObjectInputStream",
+                                                         "withObjectOutputStream", "eachFile", "eachFileRecurse", "eachFileMatch", "eachDir", "eachDirRecurse",
+                                                         "eachDirMatch", "traverse", "deleteDir", "renameTo", "createTempFile"));
+
+    /**
+     * The global AST transformations that are turned off, they would run for
+     * every script. <tt>@Grab</tt> downloads and loads arbitrary jars.
+     */
+    static final Set<String>          DISABLED_GLOBAL_TRANSFORMATIONS = Collections.singleton("groovy.grape.GrabAnnotationTransformation");
+
+    private AstSandbox() {}
+
+    /**
+     * Creates the customizers that check scripts against the whitelists.
+     * 
+     * @return the customizers
+     */
+    static CompilationCustomizer[] createCustomizers() {
+        SecureASTCustomizer secure = new SecureASTCustomizer();
+        secure.setPackageAllowed(false);
+        //the expression checker checks the types instead, so scripts can use the classes they declare
+        secure.setIndirectImportCheckEnabled(false);
+        secure.setImportsWhitelist(new ArrayList<>(CLASSES));
+        //a star import only makes names resolve, the classes are still checked one by one
+        secure.setStarImportsWhitelist(PACKAGE_CLASSES.keySet().stream().map(name -> name + ".*").collect(Collectors.toList()));
+        secure.setStaticImportsWhitelist(Collections.emptyList());
+        secure.setStaticStarImportsWhitelist(Collections.singletonList("java.lang.Math.*"));
+        secure.addExpressionCheckers(AstSandbox::isAuthorized);
+
+        //added after the checks, so they don't see the calls it adds
+        return new CompilationCustomizer[] { new AnnotationChecker(), secure, new SupertypeChecker(), new SubscriptGuard() };
+    }
+
+    /**
+     * Describes the whitelists, so that classes compiled under different ones
+     * can be told apart.
+     * 
+     * @return the description
+     */
+    static String describe() {
+        return new TreeSet<>(CLASSES) + " " + new TreeSet<>(ANNOTATIONS) + " " + new TreeSet<>(DENIED_NAMES) + " "
+                + new TreeSet<>(DISABLED_GLOBAL_TRANSFORMATIONS);
+    }
+
+    /**
+     * Checks a subscript key that is computed at run time. Scripts call this
+     * for them, see {@link SubscriptGuard}.
+     * 
+     * @param key
+     *        the key
+     * @return the key, or its string if it's a {@link GString}
+     * @throws SecurityException
+     *         if the key names a method or property scripts may not use
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T checkKey(T key) {
+        if ( !(key instanceof CharSequence)) { return key; }
+
+        //a GString may build a different string every time, so the checked one is used
+        String name = key.toString();
+        if (DENIED_NAMES.contains(name)) { throw new SecurityException("Subscript " + name + " is not allowed"); }
+        return (key instanceof GString) ? (T) name : key;
+    }
+
+    private static boolean isAuthorized(Expression expression) {
+        if ( !isAllowed(expression.getType())) { return false; }
+        if (expression instanceof AttributeExpression) { return false; }
+        if (isSubscript(expression)) {
+            Expression key = ((BinaryExpression) expression).getRightExpression();
+            return !(key instanceof ConstantExpression) || !DENIED_NAMES.contains(String.valueOf(((ConstantExpression) key).getValue()));
+        }
+
+        Expression name;
+        if (expression instanceof MethodCallExpression) {
+            name = ((MethodCallExpression) expression).getMethod();
+        } else if (expression instanceof PropertyExpression) {
+            name = ((PropertyExpression) expression).getProperty();
+        } else if (expression instanceof MethodPointerExpression) {
+            name = ((MethodPointerExpression) expression).getMethodName();
+        } else if (expression instanceof StaticMethodCallExpression) {
+            return !DENIED_NAMES.contains(((StaticMethodCallExpression) expression).getMethod());
+        } else {
+            return true;
+        }
+
+        //names computed at run time can't be checked
+        if ( !(name instanceof ConstantExpression)) { return false; }
+
+        return !DENIED_NAMES.contains(String.valueOf(((ConstantExpression) name).getValue()));
+    }
+
+    private static boolean isSubscript(Expression expression) {
+        return expression instanceof BinaryExpression && ((BinaryExpression) expression).getOperation().getType() == Types.LEFT_SQUARE_BRACKET;
+    }
+
+    /**
+     * Checks whether scripts may use a type. Besides the whitelisted classes,
+     * these are the classes declared by the script itself and the classes
+     * that were compiled in the sandbox earlier (!!load-ed classes).
+     */
+    private static boolean isAllowed(ClassNode type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (ClassHelper.isPrimitiveType(type) || type.isPrimaryClassNode()) { return true; }
+        if (CLASSES.contains(type.getName())) { return true; }
+
+        return type.isResolved() && ScriptSecurityPolicy.isSandboxed(type.getTypeClass().getProtectionDomain().getCodeSource());
+    }
+
+    /**
+     * Creates the class loader that scripts are loaded by.
+     * 
+     * @param parent
+     *        the class loader of the bot
+     * @return the restricted class loader
+     */
+    static ClassLoader createClassLoader(ClassLoader parent) {
+        return new RestrictedClassLoader(parent);
+    }
+
+    /**
+     * Rejects annotations that are not whitelisted. It runs in the first
+     * phase, before any AST transformation gets a chance to run.
+     */
+    private static class AnnotationChecker extends CompilationCustomizer {
+
+        private AnnotationChecker() {
+            super(CompilePhase.CONVERSION);
+        }
+
+        @Override
+        public void call(final SourceUnit source, GeneratorContext context, ClassNode classNode) throws CompilationFailedException {
+            new ClassCodeVisitorSupport() {
+
+                @Override
+                protected SourceUnit getSourceUnit() {
+                    return source;
+                }
+
+                @Override
+                public void visitAnnotations(AnnotatedNode node) {
+                    for (AnnotationNode annotation : node.getAnnotations()) {
+                        //added by the compiler, not written by the script
+                        if (annotation.getLineNumber() < 0) {
+                            continue;
+                        }
+
+                        String name = annotation.getClassNode().getName();
+                        if ( !ANNOTATIONS.contains(name) && !ANNOTATIONS.contains("groovy.transform." + name)) {
+                            source.addError(new SyntaxException("Annotation " + name + " is not allowed", annotation.getLineNumber(), annotation.getColumnNumber()));
+                        }
+                    }
+                    super.visitAnnotations(node);
+                }
+
+                @Override
+                protected void visitConstructorOrMethod(MethodNode node, boolean isConstructor) {
+                    visitParameters(node.getParameters());
+                    super.visitConstructorOrMethod(node, isConstructor);
+                }
+
+                @Override
+                public void visitClosureExpression(ClosureExpression expression) {
+                    visitParameters(expression.getParameters());
+                    super.visitClosureExpression(expression);
+                }
+
+                private void visitParameters(Parameter[] parameters) {
+                    if (parameters == null) { return; }
+
+                    for (Parameter parameter : parameters) {
+                        visitAnnotations(parameter);
+                    }
+                }
+            }.visitClass(classNode);
+        }
+    }
+
+    /**
+     * Rejects classes that extend or implement classes scripts may not use.
+     * Their constructors could otherwise call the constructors of the
+     * superclass, like <tt>super('/tmp/file')</tt> for a {@link java.util.Formatter}.
+     */
+    private static class SupertypeChecker extends CompilationCustomizer {
+
+        private SupertypeChecker() {
+            super(CompilePhase.CANONICALIZATION);
+        }
+
+        @Override
+        public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) throws CompilationFailedException {
+            List<ClassNode> supertypes = new ArrayList<>(Arrays.asList(classNode.getInterfaces()));
+            if (classNode.getSuperClass() != null) {
+                supertypes.add(classNode.getSuperClass());
+            }
+
+            for (ClassNode supertype : supertypes) {
+                if ( !isAllowed(supertype)) { throw new SecurityException("Class " + classNode.getName() + " may not extend or implement " + supertype.getName()); }
+            }
+        }
+    }
+
+    /**
+     * Makes scripts check the subscript keys that are computed at run time,
+     * by passing them through {@link AstSandbox#checkKey}. Constant keys were
+     * checked when the script was compiled.
+     */
+    private static class SubscriptGuard extends CompilationCustomizer {
+
+        private SubscriptGuard() {
+            super(CompilePhase.CANONICALIZATION);
+        }
+
+        @Override
+        public void call(final SourceUnit source, GeneratorContext context, ClassNode classNode) throws CompilationFailedException {
+            new ClassCodeExpressionTransformer() {
+
+                @Override
+                protected SourceUnit getSourceUnit() {
+                    return source;
+                }
+
+                @Override
+                public Expression transform(Expression expression) {
+                    if (expression instanceof ClosureExpression) {
+                        //closures don't transform their code on their own
+                        ((ClosureExpression) expression).getCode().visit(this);
+                        return expression;
+                    }
+                    if ( !isSubscript(expression) || ((BinaryExpression) expression).getRightExpression() instanceof ConstantExpression) { return super.transform(expression); }
+
+                    BinaryExpression subscript = (BinaryExpression) expression;
+                    Expression key = new StaticMethodCallExpression(ClassHelper.make(AstSandbox.class), "checkKey", new ArgumentListExpression(transform(subscript.getRightExpression())));
+                    key.setSourcePosition(subscript.getRightExpression());
+                    BinaryExpression guarded = new BinaryExpression(transform(subscript.getLeftExpression()), subscript.getOperation(), key);
+                    guarded.setSourcePosition(subscript);
+                    return guarded;
+                }
+            }.visitClass(classNode);
+        }
+    }
+
+    /**
+     * Refuses to load the classes that scripts must not link against.
+     */
+    private static class RestrictedClassLoader extends ClassLoader {
+
+        private static final List<String> DENIED_PREFIXES = Arrays.asList("java.lang.Runtime", "java.lang.ProcessBuilder", "java.lang.Process", "java.lang.System",
+                                                              "java.lang.Thread", "java.lang.ClassLoader", "java.lang.Compiler", "java.lang.SecurityManager",
+                                                              "java.lang.reflect.", "java.lang.invoke.", "java.lang.management.", "java.lang.instrument.", "java.io.File",
+                                                              "java.io.RandomAccessFile", "java.nio.", "java.net.", "java.rmi.", "java.security.", "java.sql.",
+                                                              "java.util.concurrent.Executor", "java.util.concurrent.ThreadPoolExecutor",
+                                                              "java.util.concurrent.ScheduledThreadPoolExecutor", "java.util.concurrent.ForkJoin", "java.util.concurrent.CompletableFuture",
+                                                              "java.util.prefs.", "java.util.logging.", "java.util.jar.", "java.util.zip.",
+                                                              "java.util.ServiceLoader", "java.util.Timer", "java.util.Formatter", "java.util.Scanner",
+                                                              "java.util.Properties", "java.util.ResourceBundle", "java.util.PropertyResourceBundle", "javax.", "sun.", "com.sun.", "jdk.", "groovy.lang.GroovyShell",
+                                                              "groovy.lang.GroovyClassLoader", "groovy.lang.GroovySystem", "groovy.util.Eval", "groovy.util.GroovyScriptEngine",
+                                                              "groovy.grape.", "groovy.ui.", "groovy.sql.", "org.codehaus.groovy.control.", "org.codehaus.groovy.tools.");
+
+        /**
+         * Denied classes that every script links against: the interrupt
+         * checks call {@link System} and {@link Thread}, and scripts get helper
+         * methods for the methods they inherit from {@link groovy.lang.Script},
+         * whose signatures mention the others. Scripts can't refer to these
+         * classes on their own, that is rejected when they are compiled.
+         */
+        private static final Set<String>  REQUIRED        = new HashSet<>(Arrays.asList("java.lang.System", "java.lang.Thread", "java.io.File",
+                                                              "org.codehaus.groovy.control.CompilationFailedException"));
+
+        private RestrictedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (REQUIRED.contains(name)) { return super.loadClass(name, resolve); }
+
+            for (String prefix : DENIED_PREFIXES) {
+                if (name.startsWith(prefix)) { throw new ClassNotFoundException(name); }
+            }
+            if (name.startsWith("com.gmail.inverseconduit.") && !name.equals(ScriptBase.class.getName()) && !name.equals(AstSandbox.class.getName())) { throw new ClassNotFoundException(name); }
+
+            return super.loadClass(name, resolve);
+        }
+    }
+}
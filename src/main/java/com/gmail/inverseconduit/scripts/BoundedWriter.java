@@ -0,0 +1,72 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.io.Writer;
+
+/**
+ * Collects the characters written to it up to a fixed limit and silently drops
+ * the rest, so a script that prints in a loop can't fill up the memory.
+ */
+class BoundedWriter extends Writer {
+
+    private final StringBuilder buffer;
+
+    private final int           limit;
+
+    private boolean             truncated;
+
+    /**
+     * @param limit
+     *        the maximum number of characters to keep
+     */
+    BoundedWriter(int limit) {
+        this.limit = limit;
+        buffer = new StringBuilder(Math.min(limit, 256));
+    }
+
+    @Override
+    public synchronized void write(char[] cbuf, int off, int len) {
+        int remaining = limit - buffer.length();
+        if (len > remaining) {
+            truncated = true;
+            len = remaining;
+        }
+        buffer.append(cbuf, off, len);
+    }
+
+    @Override
+    public void flush() {
+        //nothing to flush
+    }
+
+    @Override
+    public void close() {
+        //nothing to close
+    }
+
+    /**
+     * @return the number of characters that can still be written before the
+     *         limit is reached
+     */
+    synchronized int remaining() {
+        return limit - buffer.length();
+    }
+
+    /**
+     * @return the number of characters kept so far
+     */
+    synchronized int length() {
+        return buffer.length();
+    }
+
+    /**
+     * @return true if characters were dropped because the limit was reached
+     */
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.gmail.inverseconduit.scripts;
+
+/**
+ * How evaluated Groovy scripts are compiled.
+ */
+public enum CompileMode {
+
+    /**
+     * Compiles scripts the usual way, with dynamic method dispatch.
+     */
+    DYNAMIC,
+
+    /**
+     * Compiles scripts with {@link groovy.transform.CompileStatic}, which runs
+     * close to Java speed but rejects scripts that don't type check.
+     */
+    STATIC,
+
+    /**
+     * Tries {@link #STATIC} and falls back to {@link #DYNAMIC} if the script
+     * doesn't type check.
+     */
+    AUTO;
+}
@@ -0,0 +1,126 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Script;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import com.gmail.inverseconduit.utils.HashUtils;
+
+/**
+ * Caches compiled script classes by the hash of their source code, so that
+ * re-running a script skips compilation entirely. The cache is bounded and
+ * evicts the least recently used script. Every script is compiled by its own
+ * {@link GroovyClassLoader}, so that an evicted script's classes (and the
+ * metaspace they occupy) can be unloaded.
+ */
+@ThreadSafe
+class CompiledScriptCache {
+
+    private static final Logger                        LOGGER = Logger.getLogger(CompiledScriptCache.class.getName());
+
+    private final ClassLoader                          parent;
+
+    private final CompilerConfiguration                config;
+
+    private final Map<String, Compiled>                scripts;
+
+    /**
+     * @param parent
+     *        the class loader that resolves the classes a script refers to
+     * @param config
+     *        the configuration to compile scripts with
+     * @param maxSize
+     *        the number of compiled scripts to keep
+     */
+    CompiledScriptCache(ClassLoader parent, CompilerConfiguration config, final int maxSize) {
+        this.parent = parent;
+        this.config = config;
+        scripts = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -3574382437950584925L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the compiled class of a script, compiling it if it isn't cached.
+     * Scripts that failed to compile are cached as well, so they fail again
+     * without another compilation.
+     * 
+     * @param codeSource
+     *        the script
+     * @return the compiled script class
+     * @throws CompilationFailedException
+     *         if the script doesn't compile
+     */
+    Class<? extends Script> get(GroovyCodeSource codeSource) throws CompilationFailedException {
+        String key = HashUtils.sha256(codeSource.getScriptText());
+        Compiled compiled;
+        synchronized (scripts) {
+            compiled = scripts.get(key);
+        }
+
+        if (compiled != null) {
+            LOGGER.finest("Using cached script class");
+        } else {
+            //compile outside the lock, so a slow compilation doesn't hold up scripts that are cached
+            compiled = compile(codeSource);
+            synchronized (scripts) {
+                Compiled cached = scripts.get(key);
+                if (cached != null) {
+                    compiled = cached;
+                } else {
+                    scripts.put(key, compiled);
+                }
+            }
+        }
+
+        if (compiled.failure != null) { throw compiled.failure; }
+        return compiled.scriptClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Compiled compile(GroovyCodeSource codeSource) {
+        GroovyClassLoader loader = new GroovyClassLoader(parent, config);
+        try {
+            return new Compiled(loader.parseClass(codeSource, false), null);
+        } catch(CompilationFailedException e) {
+            return new Compiled(null, e);
+        }
+    }
+
+    /**
+     * Removes all compiled scripts, e.g. because the classes they were compiled
+     * against changed.
+     */
+    void clear() {
+        synchronized (scripts) {
+            scripts.clear();
+        }
+    }
+
+    private static final class Compiled {
+
+        private final Class<? extends Script>    scriptClass;
+
+        private final CompilationFailedException failure;
+
+        private Compiled(Class<? extends Script> scriptClass, CompilationFailedException failure) {
+            this.scriptClass = scriptClass;
+            this.failure = failure;
+        }
+    }
+}
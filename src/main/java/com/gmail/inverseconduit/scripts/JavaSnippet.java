@@ -0,0 +1,19 @@
+package com.gmail.inverseconduit.scripts;
+
+/**
+ * Base class of the classes that Java snippets are wrapped into, see
+ * {@link JavaSnippetCompiler}. Snippets print with <tt>System.out</tt> and
+ * <tt>System.err</tt>, which are redirected to the eval's output while the
+ * snippet runs (see {@link SystemOutput}).
+ */
+public abstract class JavaSnippet {
+
+    /**
+     * Runs the snippet.
+     * 
+     * @return the value of the snippet or null if it has none
+     * @throws Exception
+     *         if the snippet throws one
+     */
+    public abstract Object run() throws Exception;
+}
@@ -0,0 +1,367 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.SecureClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.gmail.inverseconduit.utils.HashUtils;
+
+/**
+ * Compiles Java snippets in memory. A snippet is either an expression or a
+ * list of statements, which are wrapped into the
+ * {@link JavaSnippet#run() run} method of a {@link JavaSnippet}.<br />
+ * <br />
+ * One compiler and one file manager are reused for all snippets, so only the
+ * first compilation pays for loading the compiler and indexing the platform
+ * classes. Compiled snippets are cached by the hash of their source code and
+ * the least recently used snippet is evicted. Every snippet is defined by its
+ * own class loader with the sandboxed code source of scripts, so an evicted
+ * snippet's classes can be unloaded.<br />
+ * <br />
+ * A snippet can't close the run method to declare members of its own, like an
+ * initializer that would run when the snippet is created: such snippets are
+ * rejected before they are compiled.
+ */
+@ThreadSafe
+class JavaSnippetCompiler {
+
+    private static final Logger           LOGGER     = Logger.getLogger(JavaSnippetCompiler.class.getName());
+
+    private static final String           CLASS_NAME = "Snippet";
+
+    private static final String           HEADER     = "import java.util.*; import java.util.function.*; import java.util.stream.*; import java.math.*; "
+                                                         + "public class " + CLASS_NAME + " extends " + JavaSnippet.class.getName() + " { public Object run() throws Exception {\n";
+
+    private static final String           FOOTER     = "\n}}";
+
+    private final JavaCompiler            compiler   = ToolProvider.getSystemJavaCompiler();
+
+    /**
+     * Caches the platform classes between compilations. Not thread safe, so
+     * compilations are synchronized on it.
+     */
+    private final StandardJavaFileManager fileManager;
+
+    private final List<String>            options    = Arrays.asList("-proc:none", "-nowarn", "-classpath", System.getProperty("java.class.path"));
+
+    private final Map<String, Compiled>   snippets;
+
+    /**
+     * @param maxSize
+     *        the number of compiled snippets to keep
+     */
+    JavaSnippetCompiler(final int maxSize) {
+        fileManager = (compiler == null) ? null : compiler.getStandardFileManager(null, Locale.ROOT, null);
+        snippets = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 3196528366107513385L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Tells whether Java snippets can be compiled at all. They can't if the bot
+     * runs on a JRE rather than a JDK.
+     * 
+     * @return true if a compiler is available
+     */
+    boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * Gets the compiled class of a snippet, compiling it if it isn't cached.
+     * Snippets that failed to compile are cached as well.
+     * 
+     * @param snippet
+     *        the snippet
+     * @return the compiled snippet class
+     * @throws SnippetCompilationException
+     *         if the snippet doesn't compile
+     */
+    Class<? extends JavaSnippet> get(String snippet) throws SnippetCompilationException {
+        if (compiler == null) { throw new SnippetCompilationException("no Java compiler available, the bot runs on a JRE"); }
+
+        String key = HashUtils.sha256(snippet);
+        Compiled compiled;
+        synchronized (snippets) {
+            compiled = snippets.get(key);
+        }
+
+        if (compiled != null) {
+            LOGGER.finest("Using cached snippet class");
+        } else {
+            compiled = compile(snippet);
+            synchronized (snippets) {
+                Compiled cached = snippets.get(key);
+                if (cached != null) {
+                    compiled = cached;
+                } else {
+                    snippets.put(key, compiled);
+                }
+            }
+        }
+
+        if (compiled.failure != null) { throw compiled.failure; }
+        return compiled.snippetClass;
+    }
+
+    private Compiled compile(String body) {
+        String escape = findEscape(body);
+        if (escape != null) { return new Compiled(null, new SnippetCompilationException(escape)); }
+
+        try {
+            return compiled("return (Object) (" + body.trim().replaceFirst(";$", "") + ");");
+        } catch(SnippetCompilationException notAnExpression) {
+            //try it as statements
+        }
+
+        SnippetCompilationException failure;
+        try {
+            return compiled(body + "\n;return null;");
+        } catch(SnippetCompilationException e) {
+            //the error of the statements is what the user most likely needs to see
+            failure = e;
+        }
+
+        try {
+            //statements that return a value of their own
+            return compiled(body);
+        } catch(SnippetCompilationException e) {
+            return new Compiled(null, failure);
+        }
+    }
+
+    /**
+     * Looks for a closing brace that ends the {@link JavaSnippet#run() run}
+     * method, which would let the snippet declare initializers, fields or
+     * methods of its own. Comments, string and character literals are
+     * skipped and unicode escapes are translated first, like the compiler
+     * does.
+     * 
+     * @param body
+     *        the snippet
+     * @return the error or null if the snippet stays inside the method
+     */
+    private static String findEscape(String body) {
+        String code = translateUnicodeEscapes(body);
+        int depth = 0, line = 1;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            char next = (i + 1 < code.length()) ? code.charAt(i + 1) : 0;
+            if (c == '\n') {
+                line++;
+            } else if (c == '/' && next == '/') {
+                while (i + 1 < code.length() && code.charAt(i + 1) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && next == '*') {
+                int end = code.indexOf("*/", i + 2);
+                if (end < 0) { return null; }
+                line += countLines(code, i, end);
+                i = end + 1;
+            } else if (c == '"' || c == '\'') {
+                for (i++; i < code.length() && code.charAt(i) != c && code.charAt(i) != '\n'; i++) {
+                    if (code.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth < 0) { return "line " + line + ": the snippet may only contain the body of a method"; }
+        }
+        return null;
+    }
+
+    private static int countLines(String code, int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            if (code.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Translates unicode escapes like <tt>\u007d</tt> into the characters
+     * they stand for. A backslash that is escaped by another one doesn't
+     * start an escape.
+     */
+    private static String translateUnicodeEscapes(String code) {
+        if (code.indexOf("\\u") < 0) { return code; }
+
+        StringBuilder sb = new StringBuilder(code.length());
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            int u = i + 1;
+            while (u < code.length() && code.charAt(u) == 'u') {
+                u++;
+            }
+            if (u == i + 1) {
+                //escapes the next character, which can't start an escape then
+                sb.append(c);
+                if (u < code.length()) {
+                    sb.append(code.charAt(u));
+                    i = u;
+                }
+                continue;
+            }
+            if (u + 4 > code.length()) {
+                sb.append(c);
+                continue;
+            }
+
+            try {
+                sb.append((char) Integer.parseInt(code.substring(u, u + 4), 16));
+                i = u + 3;
+            } catch(NumberFormatException e) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private Compiled compiled(String body) throws SnippetCompilationException {
+        return new Compiled(define(compileClasses(body)), null);
+    }
+
+    private Map<String, byte[]> compileClasses(String body) throws SnippetCompilationException {
+        Source source = new Source(HEADER + body + FOOTER);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> output = new HashMap<>();
+        boolean success;
+        synchronized (fileManager) {
+            MemoryFileManager memoryFileManager = new MemoryFileManager(fileManager, output);
+            success = compiler.getTask(null, memoryFileManager, diagnostics, options, null, Collections.singletonList(source)).call();
+        }
+
+        if ( !success) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    //the snippet starts on the second line of the source
+                    throw new SnippetCompilationException("line " + (diagnostic.getLineNumber() - 1) + ": " + diagnostic.getMessage(Locale.ROOT));
+                }
+            }
+            throw new SnippetCompilationException("unknown error");
+        }
+
+        Map<String, byte[]> classes = new HashMap<>();
+        output.forEach((name, bytes) -> classes.put(name, bytes.toByteArray()));
+        return classes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<? extends JavaSnippet> define(Map<String, byte[]> classes) throws SnippetCompilationException {
+        try {
+            return (Class<? extends JavaSnippet>) new SnippetClassLoader(classes).loadClass(CLASS_NAME);
+        } catch(ClassNotFoundException e) {
+            throw new SnippetCompilationException("compiled snippet not found");
+        }
+    }
+
+    private static final class Compiled {
+
+        private final Class<? extends JavaSnippet> snippetClass;
+
+        private final SnippetCompilationException  failure;
+
+        private Compiled(Class<? extends JavaSnippet> snippetClass, SnippetCompilationException failure) {
+            this.snippetClass = snippetClass;
+            this.failure = failure;
+        }
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String code;
+
+        private Source(String code) {
+            super(URI.create("string:///" + CLASS_NAME + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * Keeps the compiled classes in memory instead of writing them to disk.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> output;
+
+        private MemoryFileManager(JavaFileManager fileManager, Map<String, ByteArrayOutputStream> output) {
+            super(fileManager);
+            this.output = output;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, final String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+
+                @Override
+                public OutputStream openOutputStream() throws IOException {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    output.put(className, bytes);
+                    return bytes;
+                }
+            };
+        }
+    }
+
+    /**
+     * Defines the classes of a single snippet.
+     */
+    private static final class SnippetClassLoader extends SecureClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        private SnippetClassLoader(Map<String, byte[]> classes) {
+            super(JavaSnippetCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) { throw new ClassNotFoundException(name); }
+
+            return defineClass(name, bytes, 0, bytes.length, LoadedClassLoader.SANDBOX_CODE_SOURCE);
+        }
+    }
+}
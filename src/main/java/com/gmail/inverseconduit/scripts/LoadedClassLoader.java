@@ -0,0 +1,92 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.GroovyClassLoader;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.SecureClassLoader;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+/**
+ * Holds the classes that were !!load-ed. The classes are defined straight from
+ * their compiled bytecode, with the same sandboxed code source that scripts
+ * get, so stored classes can be restored without compiling them again.
+ */
+class LoadedClassLoader extends GroovyClassLoader {
+
+    /**
+     * The code source of scripts, see {@link ScriptRunner}.
+     */
+    static final CodeSource SANDBOX_CODE_SOURCE;
+    static {
+        try {
+            SANDBOX_CODE_SOURCE = new CodeSource(new URL("file", "", "/sandboxScript"), (Certificate[]) null);
+        } catch(MalformedURLException e) {
+            //should never be thrown
+            throw new RuntimeException(e);
+        }
+    }
+
+    LoadedClassLoader(ClassLoader parent, CompilerConfiguration config) {
+        super(parent, config);
+    }
+
+    /**
+     * Defines the classes of a single !!load. Every load gets its own child
+     * loader, so loading a class with the same name again replaces it, like
+     * it does with {@link #parseClass(String)}.
+     * 
+     * @param classes
+     *        the class bytecode, keyed by class name
+     * @return the defined classes
+     */
+    List<Class<?>> define(Map<String, byte[]> classes) {
+        Batch batch = new Batch(classes);
+        List<Class<?>> defined = new ArrayList<>(classes.size());
+        for (String name : classes.keySet()) {
+            Class<?> cls = batch.define(name);
+            setClassCacheEntry(cls);
+            defined.add(cls);
+        }
+        return defined;
+    }
+
+    /**
+     * Defines the classes of a single !!load on demand, so classes of the same
+     * load can refer to each other in any order.
+     */
+    private class Batch extends SecureClassLoader {
+
+        private final Map<String, byte[]>   classes;
+
+        private final Map<String, Class<?>> defined = new HashMap<>();
+
+        private Batch(Map<String, byte[]> classes) {
+            super(LoadedClassLoader.this);
+            this.classes = classes;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (classes.containsKey(name)) { return define(name); }
+            return super.loadClass(name, resolve);
+        }
+
+        private synchronized Class<?> define(String name) {
+            Class<?> cls = defined.get(name);
+            if (cls == null) {
+                byte[] bytes = classes.get(name);
+                cls = defineClass(name, bytes, 0, bytes.length, SANDBOX_CODE_SOURCE);
+                defined.put(name, cls);
+            }
+            return cls;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.GroovySystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.gmail.inverseconduit.utils.HashUtils;
+
+/**
+ * Stores the source code and compiled bytecode of !!load-ed classes on disk, so
+ * they survive a restart. Every load is stored under the hash of its source
+ * code. The bytecode is additionally keyed by the Groovy version and by a
+ * fingerprint of the compiler configuration, so that stored classes are
+ * recompiled from their source after a Groovy upgrade or when they would be
+ * compiled differently (for example under a stricter sandbox).<br />
+ * <br />
+ * The directory contains an "index.txt" file listing the hashes in the order
+ * they were loaded, a "{hash}.groovy" file with the source code of each load
+ * and a "{hash}-{groovyVersion}-{config}.classes" file with its bytecode.
+ */
+@ThreadSafe
+public class LoadedScriptStore {
+
+    private static final String INDEX_FILENAME = "index.txt";
+
+    private final Path          dir;
+
+    /**
+     * @param dir
+     *        the directory to store the classes in (created if it doesn't
+     *        exist)
+     * @throws IOException
+     *         if the directory could not be created
+     */
+    public LoadedScriptStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Stores a load.
+     * 
+     * @param source
+     *        the source code
+     * @param classes
+     *        the compiled classes, keyed by class name. May be empty to only
+     *        store the source code.
+     * @param config
+     *        the fingerprint of the compiler configuration the classes were
+     *        compiled with
+     * @throws IOException
+     *         if the load could not be written
+     */
+    public synchronized void save(String source, Map<String, byte[]> classes, String config) throws IOException {
+        String hash = HashUtils.sha256(source);
+        Files.write(sourceFile(hash), source.getBytes(StandardCharsets.UTF_8));
+        if ( !classes.isEmpty()) {
+            writeClasses(classesFile(hash, config), classes);
+        }
+
+        List<String> index = readIndex();
+        if ( !index.contains(hash)) {
+            Files.write(dir.resolve(INDEX_FILENAME), Collections.singletonList(hash), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Stores the bytecode of a load whose source is already stored.
+     * 
+     * @param source
+     *        the source code
+     * @param classes
+     *        the compiled classes, keyed by class name
+     * @param config
+     *        the fingerprint of the compiler configuration the classes were
+     *        compiled with
+     * @throws IOException
+     *         if the bytecode could not be written
+     */
+    public synchronized void saveClasses(String source, Map<String, byte[]> classes, String config) throws IOException {
+        writeClasses(classesFile(HashUtils.sha256(source), config), classes);
+    }
+
+    private void writeClasses(Path file, Map<String, byte[]> classes) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads all stored loads, in the order they were loaded.
+     * 
+     * @param config
+     *        the fingerprint of the current compiler configuration, bytecode
+     *        compiled with a different one is not returned
+     * @return the loads
+     * @throws IOException
+     *         if the loads could not be read
+     */
+    public synchronized List<StoredScript> loadAll(String config) throws IOException {
+        List<StoredScript> scripts = new ArrayList<>();
+        for (String hash : readIndex()) {
+            String source;
+            try {
+                source = new String(Files.readAllBytes(sourceFile(hash)), StandardCharsets.UTF_8);
+            } catch(NoSuchFileException e) {
+                continue;
+            }
+
+            scripts.add(new StoredScript(source, readClasses(classesFile(hash, config))));
+        }
+        return scripts;
+    }
+
+    private Map<String, byte[]> readClasses(Path file) throws IOException {
+        if ( !Files.exists(file)) {
+            //never compiled or compiled with a different Groovy version or configuration
+            return null;
+        }
+
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        try (InputStream fileIn = Files.newInputStream(file); DataInputStream in = new DataInputStream(fileIn)) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classes.put(name, bytes);
+            }
+        }
+        return classes;
+    }
+
+    private List<String> readIndex() throws IOException {
+        Path file = dir.resolve(INDEX_FILENAME);
+        if ( !Files.exists(file)) { return new ArrayList<>(); }
+
+        List<String> index = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if ( !line.isEmpty() && !index.contains(line)) {
+                index.add(line);
+            }
+        }
+        return index;
+    }
+
+    private Path sourceFile(String hash) {
+        return dir.resolve(hash + ".groovy");
+    }
+
+    private Path classesFile(String hash, String config) {
+        return dir.resolve(hash + "-" + GroovySystem.getVersion() + "-" + config + ".classes");
+    }
+
+    /**
+     * A stored load.
+     */
+    public static class StoredScript {
+
+        private final String              source;
+
+        private final Map<String, byte[]> classes;
+
+        private StoredScript(String source, Map<String, byte[]> classes) {
+            this.source = source;
+            this.classes = classes;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the compiled classes keyed by class name or null if they
+         *         have to be compiled from the source code first
+         */
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.Writable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Renders the result of a script into a bounded number of characters.
+ * Collections, maps and arrays are rendered element by element the way the
+ * script's language prints them, and rendering stops as soon as the budget is
+ * used up, so a script returning a million-element list costs no more than one
+ * returning a short one. Collections that were cut short end with a summary of
+ * how many elements were left out.<br />
+ * <br />
+ * {@link Writable} objects (e.g. GStrings) are written straight into the
+ * budget and stopped once it's full. Other objects are rendered with their
+ * <tt>toString()</tt>, which builds the whole string before it's cut, so only
+ * the limits of the sandbox the rendering runs in bound it.
+ */
+final class ResultRenderer {
+
+    /**
+     * The language whose format is used.
+     */
+    enum Syntax {
+        /**
+         * Maps as "[a:1]", arrays like lists.
+         */
+        GROOVY,
+
+        /**
+         * Maps as "{a=1}", arrays by their <tt>toString()</tt>, like Java
+         * prints them.
+         */
+        JAVA
+    }
+
+    /**
+     * How deep nested collections are rendered.
+     */
+    private static final int    MAX_DEPTH       = 8;
+
+    /**
+     * The room kept free for the summary of a collection that was cut short.
+     */
+    private static final int    SUMMARY_RESERVE = 24;
+
+    private final BoundedWriter out;
+
+    private final Syntax        syntax;
+
+    private ResultRenderer(int limit, Syntax syntax) {
+        out = new BoundedWriter(limit);
+        this.syntax = syntax;
+    }
+
+    /**
+     * Renders a result in Groovy's format.
+     * 
+     * @param result
+     *        the result to render
+     * @param limit
+     *        the maximum number of characters to render
+     * @return the rendered result, ending with "..." if it was cut short
+     */
+    static String render(Object result, int limit) {
+        return render(result, limit, Syntax.GROOVY);
+    }
+
+    /**
+     * @param result
+     *        the result to render
+     * @param limit
+     *        the maximum number of characters to render
+     * @param syntax
+     *        the language whose format to use
+     * @return the rendered result, ending with "..." if it was cut short
+     */
+    static String render(Object result, int limit, Syntax syntax) {
+        ResultRenderer renderer = new ResultRenderer(limit, syntax);
+        renderer.append(result, 0);
+        String rendered = renderer.out.toString();
+        return renderer.out.isTruncated() ? rendered + "..." : rendered;
+    }
+
+    private void append(Object value, int depth) {
+        if (out.isTruncated()) { return; }
+
+        if (value == null) {
+            appendChars("null");
+        } else if (value instanceof Writable) {
+            appendWritable((Writable) value);
+        } else if (value instanceof CharSequence) {
+            appendChars((CharSequence) value);
+        } else if (depth >= MAX_DEPTH) {
+            appendChars("...");
+        } else if (value instanceof Map) {
+            appendMap((Map<?, ?>) value, depth);
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            appendElements(collection, collection.iterator(), collection.size(), depth);
+        } else if (value.getClass().isArray() && syntax == Syntax.GROOVY) {
+            appendArray(value, depth);
+        } else {
+            appendChars(String.valueOf(value));
+        }
+    }
+
+    private void appendElements(Object container, Iterator<?> elements, int size, int depth) {
+        appendChars("[");
+        int rendered = 0;
+        while (elements.hasNext()) {
+            if (out.remaining() <= SUMMARY_RESERVE) {
+                appendSummary(rendered, size, "]");
+                return;
+            }
+            if (rendered > 0) {
+                appendChars(", ");
+            }
+
+            Object element = elements.next();
+            append(element == container ? "(this Collection)" : element, depth + 1);
+            rendered++;
+        }
+        appendChars("]");
+    }
+
+    private void appendMap(Map<?, ?> map, int depth) {
+        boolean java = (syntax == Syntax.JAVA);
+        String close = java ? "}" : "]";
+        if (map.isEmpty()) {
+            appendChars(java ? "{}" : "[:]");
+            return;
+        }
+
+        appendChars(java ? "{" : "[");
+        int rendered = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (out.remaining() <= SUMMARY_RESERVE) {
+                appendSummary(rendered, map.size(), close);
+                return;
+            }
+            if (rendered > 0) {
+                appendChars(", ");
+            }
+
+            append(entry.getKey() == map ? "(this Map)" : entry.getKey(), depth + 1);
+            appendChars(java ? "=" : ":");
+            append(entry.getValue() == map ? "(this Map)" : entry.getValue(), depth + 1);
+            rendered++;
+        }
+        appendChars(close);
+    }
+
+    /**
+     * Writes a {@link Writable} into the budget, stopping it as soon as the
+     * budget is full.
+     */
+    private void appendWritable(Writable writable) {
+        try {
+            writable.writeTo(new Writer() {
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    //one character more than fits, so the writer notices it had to truncate
+                    out.write(cbuf, off, Math.min(len, out.remaining() + 1));
+                    if (out.isTruncated()) { throw new Full(); }
+                }
+
+                @Override
+                public void flush() {
+                    //nothing to flush
+                }
+
+                @Override
+                public void close() {
+                    //nothing to close
+                }
+            });
+        } catch(Full e) {
+            //budget used up
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void appendArray(Object array, int depth) {
+        int length = Array.getLength(array);
+        appendElements(array, new Iterator<Object>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
+            }
+
+            @Override
+            public Object next() {
+                return Array.get(array, index++);
+            }
+        }, length, depth);
+    }
+
+    private void appendSummary(int rendered, int size, String close) {
+        appendChars(rendered > 0 ? ", ... (" : "... (");
+        appendChars((size - rendered) + " more)" + close);
+    }
+
+    private void appendChars(CharSequence chars) {
+        //one character more than fits, so the writer notices it had to truncate
+        int length = Math.min(chars.length(), out.remaining() + 1);
+        out.write(chars.subSequence(0, length).toString().toCharArray(), 0, length);
+    }
+
+    /**
+     * Stops a {@link Writable} once the budget is full.
+     */
+    private static final class Full extends IOException {
+
+        private static final long serialVersionUID = -2911418270516322014L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            //thrown for control flow only
+            return this;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.MetaClass;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estimates how much memory a graph of objects retains, by walking their
+ * fields and array elements with reflection. No methods of the objects are
+ * called, so scripts can't run code while they are measured.<br />
+ * <br />
+ * Sizes assume a 64-bit JVM with compressed references: a 12 byte header per
+ * object (16 for arrays), 4 bytes per reference, all rounded up to 8 bytes.
+ * Classes, class loaders, threads and meta classes are shared with the rest of
+ * the JVM, so they are neither counted nor walked into.
+ */
+final class RetainedSize {
+
+    private static final int                 HEADER = 12, ARRAY_HEADER = 16, REFERENCE = 4, ALIGNMENT = 8;
+
+    private static final ClassValue<Field[]> FIELDS = new FieldCache();
+
+    private RetainedSize() {}
+
+    /**
+     * Checks whether a graph of objects takes up more memory than allowed.
+     * The walk stops as soon as the answer is known, so it never visits more
+     * than the given number of objects.
+     * 
+     * @param roots
+     *        the objects to start from
+     * @param maxBytes
+     *        the number of bytes the objects may take up
+     * @param maxObjects
+     *        the number of objects that may be reachable
+     * @return true if the objects take up more than <tt>maxBytes</tt> or
+     *         there are more than <tt>maxObjects</tt> of them
+     */
+    static boolean exceeds(Collection<?> roots, long maxBytes, int maxObjects) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        for (Object root : roots) {
+            if (root != null) {
+                pending.push(root);
+            }
+        }
+
+        long bytes = 0;
+        while ( !pending.isEmpty()) {
+            Object object = pending.pop();
+            if (isShared(object) || !visited.add(object)) {
+                continue;
+            }
+            if (visited.size() > maxObjects) { return true; }
+
+            bytes += sizeOf(object, pending);
+            if (bytes > maxBytes) { return true; }
+        }
+        return false;
+    }
+
+    private static boolean isShared(Object object) {
+        return object instanceof Class || object instanceof ClassLoader || object instanceof Thread || object instanceof MetaClass;
+    }
+
+    /**
+     * Measures an object and queues the objects it references.
+     */
+    private static long sizeOf(Object object, Deque<Object> pending) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            Class<?> component = type.getComponentType();
+            if (component.isPrimitive()) { return align(ARRAY_HEADER + (long) sizeOf(component) * Array.getLength(object)); }
+
+            Object[] array = (Object[]) object;
+            for (Object element : array) {
+                if (element != null) {
+                    pending.push(element);
+                }
+            }
+            return align(ARRAY_HEADER + (long) REFERENCE * array.length);
+        }
+
+        long size = HEADER;
+        for (Field field : FIELDS.get(type)) {
+            Class<?> fieldType = field.getType();
+            size += sizeOf(fieldType);
+            if (fieldType.isPrimitive()) {
+                continue;
+            }
+
+            try {
+                Object value = field.get(object);
+                if (value != null) {
+                    pending.push(value);
+                }
+            } catch(IllegalAccessException e) {
+                //was made accessible, should never be thrown
+            }
+        }
+        return align(size);
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) { return 8; }
+        if (type == int.class || type == float.class) { return 4; }
+        if (type == short.class || type == char.class) { return 2; }
+        if (type == byte.class || type == boolean.class) { return 1; }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Remembers the instance fields of each class, including the inherited
+     * ones.
+     */
+    private static class FieldCache extends ClassValue<Field[]> {
+
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch(SecurityException e) {
+                        //can't be read, so it's not followed
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.gmail.inverseconduit.scripts;
+
+/**
+ * How scripts are kept from harming the bot.
+ */
+public enum SandboxMode {
+
+    /**
+     * A JVM-wide security manager denies scripts every permission at run
+     * time. Every permission check in the JVM pays for this.
+     */
+    SECURITY_MANAGER,
+
+    /**
+     * Scripts are checked against a whitelist when they are compiled (see
+     * {@link AstSandbox}) instead of by a security manager. This is a
+     * best-effort check, not a replacement for the security manager, so it
+     * must only be used when scripts run in worker JVMs. The workers run as
+     * the bot's OS user without a security manager, so a script that gets
+     * past the check can do anything that user can. Java snippets can't be
+     * checked this way, so they are not available.
+     */
+    AST;
+}
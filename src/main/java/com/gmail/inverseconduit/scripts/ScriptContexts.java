@@ -0,0 +1,197 @@
+package com.gmail.inverseconduit.scripts;
+
+import groovy.lang.Binding;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps a separate {@link Binding} for every user, so users can't see or
+ * overwrite each other's variables. Bindings that weren't used for a while are
+ * dropped.<br />
+ * <br />
+ * After each eval, the memory the binding retains is estimated (see
+ * {@link RetainedSize}), and the context is dropped if it's over budget. A
+ * context is also dropped once it holds too many variables. Either way, the
+ * user's next eval starts with an empty binding.
+ */
+@ThreadSafe
+class ScriptContexts {
+
+    /**
+     * The number of objects a user's variables may reference, which bounds
+     * how long measuring them takes.
+     */
+    private static final int                            MAX_OBJECTS = 250000;
+
+    private final ConcurrentMap<Integer, ScriptContext> contexts = new ConcurrentHashMap<>();
+
+    private final int                                   maxContexts, maxVariables;
+
+    private final long                                  maxRetained, maxIdleMillis;
+
+    private volatile long                               lastSweep;
+
+    /**
+     * @param maxContexts
+     *        the number of users whose variables are kept
+     * @param maxVariables
+     *        the number of variables a user may have before the user's
+     *        context is dropped
+     * @param maxRetained
+     *        the number of bytes a user's variables may take up before the
+     *        user's context is dropped
+     * @param maxIdleMillis
+     *        how long a user's variables are kept after the user's last eval
+     */
+    ScriptContexts(int maxContexts, int maxVariables, long maxRetained, long maxIdleMillis) {
+        this.maxContexts = maxContexts;
+        this.maxVariables = maxVariables;
+        this.maxRetained = maxRetained;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * Gets the context of a user and locks it. It must be released with
+     * {@link ScriptContext#release()} afterwards.
+     * 
+     * @param userId
+     *        the user ID
+     * @return the user's context
+     */
+    ScriptContext acquire(int userId) {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep > maxIdleMillis / 4 || contexts.size() >= maxContexts) {
+            sweep(now);
+        }
+
+        while (true) {
+            ScriptContext context = contexts.computeIfAbsent(userId, ScriptContext::new);
+            context.lock.lock();
+            if (context.evicted) {
+                //lost the race against a sweep, try again with a fresh context
+                context.lock.unlock();
+                continue;
+            }
+
+            context.lastUsed = now;
+            return context;
+        }
+    }
+
+    /**
+     * Drops the contexts that were idle for too long. If there are still too
+     * many contexts, the least recently used ones are dropped as well.
+     * 
+     * @param now
+     *        the current time
+     */
+    private synchronized void sweep(long now) {
+        lastSweep = now;
+        for (ScriptContext context : contexts.values()) {
+            if (now - context.lastUsed > maxIdleMillis) {
+                evict(context);
+            }
+        }
+
+        while (contexts.size() >= maxContexts) {
+            ScriptContext oldest = null;
+            for (ScriptContext context : contexts.values()) {
+                if ( !context.lock.isLocked() && (oldest == null || context.lastUsed < oldest.lastUsed)) {
+                    oldest = context;
+                }
+            }
+            if (oldest == null || !evict(oldest)) {
+                //every remaining context is in use
+                break;
+            }
+        }
+    }
+
+    private boolean evict(ScriptContext context) {
+        if ( !context.lock.tryLock()) { return false; }
+
+        context.evicted = true;
+        contexts.remove(context.userId, context);
+        context.lock.unlock();
+        return true;
+    }
+
+    /**
+     * Drops the context of a user, unless it's in use.
+     * 
+     * @param userId
+     *        the user ID
+     */
+    void remove(int userId) {
+        ScriptContext context = contexts.get(userId);
+        if (context != null) {
+            evict(context);
+        }
+    }
+
+    int size() {
+        return contexts.size();
+    }
+
+    /**
+     * The variables of a single user.
+     */
+    class ScriptContext {
+
+        private final int           userId;
+
+        private final ReentrantLock lock    = new ReentrantLock();
+
+        private final Binding       binding = new Binding();
+
+        private volatile long       lastUsed;
+
+        private volatile boolean    evicted;
+
+        private ScriptContext(int userId) {
+            this.userId = userId;
+        }
+
+        Binding getBinding() {
+            return binding;
+        }
+
+        /**
+         * Unlocks the context. Drops it if the user has too many variables or
+         * they take up too much memory.
+         * 
+         * @return why the context was dropped or null if it was kept
+         */
+        String release() {
+            String reason = null;
+            if (binding.getVariables().size() > maxVariables) {
+                reason = "you have more than " + maxVariables + " variables";
+            } else if (RetainedSize.exceeds(binding.getVariables().values(), maxRetained, MAX_OBJECTS)) {
+                reason = "they take up more than " + (maxRetained / 1024 / 1024) + "MB";
+            }
+
+            if (reason == null) {
+                lock.unlock();
+            } else {
+                discard();
+            }
+            return reason;
+        }
+
+        /**
+         * Drops the context without touching its variables and unlocks it.
+         * Used when a cancelled script may still be running on the binding,
+         * so the user's next eval gets a fresh binding instead of sharing it
+         * with the dying script.
+         */
+        void discard() {
+            evicted = true;
+            contexts.remove(userId, this);
+            lock.unlock();
+        }
+    }
+}
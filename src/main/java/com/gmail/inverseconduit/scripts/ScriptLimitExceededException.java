@@ -0,0 +1,14 @@
+package com.gmail.inverseconduit.scripts;
+
+/**
+ * Thrown when a script exceeds one of the limits of the {@link ScriptSandbox}
+ * and was cancelled.
+ */
+public class ScriptLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 4871405387281637447L;
+
+    public ScriptLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,17 +1,36 @@
 package com.gmail.inverseconduit.scripts;
 
 import groovy.lang.Binding;
-import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
-import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import groovy.transform.ThreadInterrupt;
+import groovy.transform.TimedInterrupt;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.tools.GroovyClass;
 
 import com.gmail.inverseconduit.ScriptBase;
 import com.gmail.inverseconduit.datatype.ChatMessage;
+import com.gmail.inverseconduit.utils.HashUtils;
 
 /**
  * Class to run chat Code. The relevant commands submit code from the chat to
@@ -23,49 +42,598 @@ import com.gmail.inverseconduit.datatype.ChatMessage;
  */
 public class ScriptRunner {
 
-    private static final Logger         LOGGER        = Logger.getLogger(ScriptRunner.class.getName());
+    private static final Logger         LOGGER            = Logger.getLogger(ScriptRunner.class.getName());
 
-    private final Binding               scriptBinding = new Binding();
+    /**
+     * The number of compiled scripts to keep around for re-runs.
+     */
+    private static final int            SCRIPT_CACHE_SIZE = 256;
 
-    private final GroovyShell           groovyShell;
+    /**
+     * The wall-clock time (ms), CPU time (ms) and memory allocation (bytes)
+     * every eval may use.
+     */
+    static final long                   MAX_WALL_CLOCK    = TimeUnit.SECONDS.toMillis(10);
+
+    private static final long           MAX_CPU_TIME      = TimeUnit.SECONDS.toMillis(5);
+
+    private static final long           MAX_ALLOCATION    = 256 * 1024 * 1024;
+
+    /**
+     * The number of characters of script output and result that make it into
+     * the chat.
+     */
+    private static final int            MAX_OUTPUT_LENGTH = 500;
+
+    /**
+     * The number of users whose variables are kept, the number of variables
+     * and the bytes they take up after which a user's variables are dropped,
+     * and how long they are kept after the user's last eval.
+     */
+    private static final int            MAX_CONTEXTS      = 256;
+
+    private static final int            MAX_VARIABLES     = 32;
+
+    private static final long           MAX_USER_MEMORY   = 32 * 1024 * 1024;
+
+    private static final long           MAX_IDLE          = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * The scripts that warm up the runner at startup, unless another corpus is
+     * configured. They touch the parts of Groovy that evals typically use.
+     */
+    public static final List<String>    DEFAULT_WARMUP    = Collections.unmodifiableList(Arrays.asList(
+                                                              "1 + 1",
+                                                              "println 'Hello World'",
+                                                              "(1..10).collect { it * it }.sum()",
+                                                              "[3, 1, 2].sort().reverse()",
+                                                              "'hello'.toUpperCase().reverse()",
+                                                              "def map = [a: 1, b: 2]; map.collect { k, v -> \"$k=$v\" }.join(', ')",
+                                                              "String.format('%05d', 42)",
+                                                              "def fib; fib = { n -> n < 2 ? n : fib(n - 1) + fib(n - 2) }; fib(15)",
+                                                              "int x = 0; for (int i = 0; i < 1000; i++) { x += i }; x"));
+
+    /**
+     * The Java snippets that warm up the Java compiler at startup.
+     */
+    private static final List<String>   JAVA_WARMUP       = Arrays.asList("1 + 1", "System.out.println(Arrays.asList(1, 2, 3));");
+
+    /**
+     * The user ID the warmup scripts are evaluated as.
+     */
+    private static final int            WARMUP_USER_ID    = -1;
+
+    private final ScriptContexts        contexts          = new ScriptContexts(MAX_CONTEXTS, MAX_VARIABLES, MAX_USER_MEMORY, MAX_IDLE);
+
+    private final CompiledScriptCache   scriptCache;
+
+    private final CompiledScriptCache   staticScriptCache;
+
+    private final JavaSnippetCompiler   javaCompiler      = new JavaSnippetCompiler(SCRIPT_CACHE_SIZE);
+
+    private final ScriptSandbox         sandbox           = new ScriptSandbox(MAX_WALL_CLOCK, MAX_CPU_TIME, MAX_ALLOCATION);
 
     private final CompilerConfiguration groovyConfig;
 
-    private final GroovyClassLoader     groovyLoader;
+    private final LoadedClassLoader     groovyLoader;
 
+    /**
+     * Identifies the compiler configuration, stored bytecode compiled under a
+     * different one is recompiled.
+     */
+    private final String                groovyConfigFingerprint;
+
+    /**
+     * Evaluates the scripts if they are not run in this JVM, may be null.
+     */
+    private final ScriptWorkerPool      workerPool;
+
+    /**
+     * Persists the !!load-ed classes, may be null.
+     */
+    private final LoadedScriptStore     loadedScriptStore;
+
+    /**
+     * How evals are compiled unless they ask for a mode of their own.
+     */
+    private final CompileMode           compileMode;
+
+    /**
+     * How scripts are kept from harming the bot.
+     */
+    private final SandboxMode           sandboxMode;
+
+    private final List<String>          warmupScripts;
+
+    private final int                   warmupRounds;
+
+    /**
+     * Creates a script runner that evaluates scripts in this JVM and doesn't
+     * persist !!load-ed classes.
+     */
     public ScriptRunner() {
+        this(new Builder());
+    }
+
+    private ScriptRunner(Builder builder) {
+        workerPool = builder.workerPool;
+        loadedScriptStore = builder.loadedScriptStore;
+        compileMode = builder.compileMode;
+        sandboxMode = builder.sandboxMode;
+        warmupScripts = builder.warmupScripts;
+        warmupRounds = builder.warmupRounds;
+
         // Groovy
         groovyConfig = new CompilerConfiguration();
         groovyConfig.setScriptBaseClass(ScriptBase.class.getName());
-        // scriptBinding.setVariable("javaBot", null);
-        //FIXME: we could use JavaBot for this
-        groovyLoader = new GroovyClassLoader(this.getClass().getClassLoader(), groovyConfig);
-        groovyShell = new GroovyShell(this.getClass().getClassLoader(), scriptBinding, groovyConfig);
+        ClassLoader parent = this.getClass().getClassLoader();
+        if (sandboxMode == SandboxMode.AST) {
+            //added first, so the checks run before the interrupts below add code of their own
+            groovyConfig.addCompilationCustomizers(AstSandbox.createCustomizers());
+            groovyConfig.setDisabledGlobalASTTransformations(AstSandbox.DISABLED_GLOBAL_TRANSFORMATIONS);
+            parent = AstSandbox.createClassLoader(parent);
+        }
+        //lets the sandbox cancel runaway loops by interrupting the script thread
+        groovyConfig.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        groovyLoader = new LoadedClassLoader(parent, groovyConfig);
+        groovyConfigFingerprint = fingerprint(groovyConfig);
+
+        //the deadline of TimedInterrupt starts when the object is created, so only evals get it, not !!load-ed classes
+        CompilerConfiguration evalConfig = copyOf(groovyConfig);
+        evalConfig.addCompilationCustomizers(new ASTTransformationCustomizer(Collections.singletonMap("value", TimeUnit.MILLISECONDS.toSeconds(MAX_WALL_CLOCK)), TimedInterrupt.class));
+
+        //evals are compiled against the loader holding the !!load-ed classes, so they can use them
+        scriptCache = new CompiledScriptCache(groovyLoader, evalConfig, SCRIPT_CACHE_SIZE);
+
+        CompilerConfiguration staticEvalConfig = copyOf(evalConfig);
+        staticEvalConfig.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+        staticScriptCache = new CompiledScriptCache(groovyLoader, staticEvalConfig, SCRIPT_CACHE_SIZE);
+
+        if (loadedScriptStore != null) {
+            restoreLoadedScripts();
+        }
+
+        if (isJavaAvailable()) {
+            //Java snippets print to System.out and System.err
+            SystemOutput.install();
+        }
+    }
+
+    /**
+     * Copies a compiler configuration. The copy constructor leaves out the
+     * customizers and the disabled global transformations, which the
+     * interrupts and the sandbox rely on.
+     */
+    private static CompilerConfiguration copyOf(CompilerConfiguration config) {
+        CompilerConfiguration copy = new CompilerConfiguration(config);
+        copy.addCompilationCustomizers(config.getCompilationCustomizers().toArray(new CompilationCustomizer[0]));
+        copy.setDisabledGlobalASTTransformations(config.getDisabledGlobalASTTransformations());
+        return copy;
+    }
+
+    /**
+     * Fingerprints the settings a !!load-ed class is compiled with. The
+     * customizers don't describe themselves, so the sandbox contributes its
+     * whitelists.
+     */
+    private String fingerprint(CompilerConfiguration config) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(sandboxMode).append(' ').append(compileMode).append(' ').append(config.getTargetBytecode()).append(' ').append(config.getScriptBaseClass());
+        if (config.getDisabledGlobalASTTransformations() != null) {
+            sb.append(' ').append(new TreeSet<>(config.getDisabledGlobalASTTransformations()));
+        }
+        for (CompilationCustomizer customizer : config.getCompilationCustomizers()) {
+            sb.append(' ').append(customizer.getClass().getName()).append('@').append(customizer.getPhase());
+        }
+        if (sandboxMode == SandboxMode.AST) {
+            sb.append(' ').append(AstSandbox.describe());
+        }
+        return HashUtils.sha256(sb.toString()).substring(0, 16);
+    }
+
+    /**
+     * Defines the stored !!load-ed classes straight from their bytecode.
+     */
+    private void restoreLoadedScripts() {
+        List<LoadedScriptStore.StoredScript> scripts;
+        try {
+            scripts = loadedScriptStore.loadAll(groovyConfigFingerprint);
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read the stored !!load-ed classes.", e);
+            return;
+        }
+
+        for (LoadedScriptStore.StoredScript script : scripts) {
+            if (workerPool != null) {
+                workerPool.load(script.getSource());
+                continue;
+            }
+
+            try {
+                Map<String, byte[]> classes = script.getClasses();
+                if (classes == null) {
+                    //stored by a different Groovy version or compiler configuration
+                    classes = compile(script.getSource());
+                    loadedScriptStore.saveClasses(script.getSource(), classes, groovyConfigFingerprint);
+                }
+                groovyLoader.define(classes);
+            } catch(CompilationFailedException | IOException | LinkageError e) {
+                LOGGER.log(Level.WARNING, "Could not restore a stored !!load-ed class.", e);
+            }
+        }
+        LOGGER.info("Restored " + scripts.size() + " !!load-ed scripts");
+    }
+
+    /**
+     * Starts warming up the runner in the background, so the first evals
+     * don't pay for bootstrapping Groovy, loading the Java compiler and JIT
+     * compilation.
+     */
+    private void startWarmup() {
+        Thread thread = new Thread(this::warmUp, "ScriptWarmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Runs the warmup scripts. Every round compiles them anew (a comment keeps
+     * them from being cached), so that compilation gets warmed up as well as
+     * running.
+     */
+    void warmUp() {
+        long start = System.currentTimeMillis();
+        for (int round = 0; round < warmupRounds; round++) {
+            for (String script : warmupScripts) {
+                evaluate(WARMUP_USER_ID, script + "\n//warmup " + round, compileMode);
+            }
+            if (isJavaAvailable()) {
+                for (String snippet : JAVA_WARMUP) {
+                    evaluateJava(snippet + "\n//warmup " + round);
+                }
+            }
+        }
+        contexts.remove(WARMUP_USER_ID);
+        LOGGER.info("Warmed up script runner in " + (System.currentTimeMillis() - start) + "ms");
     }
 
     public String evaluateGroovy(ChatMessage msg, String commandText) {
+        return evaluateGroovy(msg, commandText, null);
+    }
+
+    /**
+     * Evaluates a Groovy script.
+     * 
+     * @param msg
+     *        the message the script was submitted with
+     * @param commandText
+     *        the script
+     * @param mode
+     *        how to compile the script or null to use the configured mode
+     * @return the chat response
+     */
+    public String evaluateGroovy(ChatMessage msg, String commandText, CompileMode mode) {
         LOGGER.info("Evaluating Groovy Script");
+        CompileMode effectiveMode = (mode == null) ? compileMode : mode;
+        String response = (workerPool == null)
+            ? evaluate(msg.getUserId(), commandText, effectiveMode)
+            : workerPool.evaluate(msg.getUserId(), commandText, effectiveMode);
+        return response.isEmpty()
+            ? String.format(":%d [tag:groovy]: no result", msg.getMessageId())
+            : String.format(":%d [tag:groovy]: %s", msg.getMessageId(), response);
+    }
+
+    /**
+     * Evaluates a script in this JVM. Each user's scripts see only the
+     * variables of that user, and a user's scripts run one at a time.
+     * 
+     * @param userId
+     *        the ID of the user who submitted the script
+     * @param commandText
+     *        the script
+     * @param mode
+     *        how to compile the script
+     * @return the script's output and result or an empty string if it had
+     *         neither. Unless the mode is {@link CompileMode#DYNAMIC}, the
+     *         response starts with how the script was compiled.
+     */
+    String evaluate(int userId, String commandText, CompileMode mode) {
+        BoundedWriter output = new BoundedWriter(MAX_OUTPUT_LENGTH);
         Object result;
+        CompileMode compiledAs = CompileMode.DYNAMIC;
+        boolean cancelled = false;
+        String dropped = null;
+        ScriptContexts.ScriptContext context = contexts.acquire(userId);
+        Binding binding = context.getBinding();
         try {
-            result = groovyShell.evaluate(createCodeSource(commandText));
+            GroovyCodeSource codeSource = createCodeSource(commandText);
+            Class<? extends Script> scriptClass = null;
+            if (mode != CompileMode.DYNAMIC) {
+                compiledAs = CompileMode.STATIC;
+                try {
+                    scriptClass = staticScriptCache.get(codeSource);
+                } catch(CompilationFailedException ex) {
+                    //e.g. the script uses variables of earlier evals, which can't be type checked
+                    if (mode == CompileMode.STATIC) { throw ex; }
+                    compiledAs = CompileMode.DYNAMIC;
+                }
+            }
+            if (scriptClass == null) {
+                scriptClass = scriptCache.get(codeSource);
+            }
+            Script script = InvokerHelper.createScript(scriptClass, binding);
+            //println() writes to the "out" variable if the binding has one
+            binding.setVariable("out", new PrintWriter(output, true));
+            //render within the sandbox, so the limits apply to the result's toString() as well
+            result = sandbox.run(() -> render(script.run(), output, ResultRenderer.Syntax.GROOVY));
         } catch(CompilationFailedException ex) {
             result = "compilation failed with error " + ex.getMessage();
+        } catch(ScriptLimitExceededException ex) {
+            result = "script cancelled, it " + ex.getMessage();
+            cancelled = true;
         } catch(Exception ex) {
             result = "undefined execution error: " + ex.getMessage();
+        } finally {
+            if (cancelled) {
+                //the script may keep running until the sandbox stops it, so leave its binding alone
+                context.discard();
+                dropped = "the script may still be using them";
+            } else {
+                binding.getVariables().remove("out");
+                dropped = context.release();
+            }
         }
         LOGGER.info("Result:" + result);
-        return result == null
-            ? String.format(":%d [tag:groovy]: no result", msg.getMessageId())
-            : String.format(":%d [tag:groovy]: %s", msg.getMessageId(), result.toString());
+
+        String response = buildResponse(output, result);
+        if (dropped != null) {
+            response += (response.isEmpty() ? "" : " ") + "(your variables were dropped, " + dropped + ")";
+        }
+        if (mode == CompileMode.DYNAMIC) { return response; }
+
+        return String.format("(%s) %s", compiledAs.name().toLowerCase(), response.isEmpty() ? "no result" : response);
+    }
+
+    public String evaluateJava(ChatMessage msg, String snippet) {
+        LOGGER.info("Evaluating Java snippet");
+        String response = (workerPool == null) ? evaluateJava(snippet) : workerPool.evaluateJava(snippet);
+        return response.isEmpty()
+            ? String.format(":%d [tag:java]: no result", msg.getMessageId())
+            : String.format(":%d [tag:java]: %s", msg.getMessageId(), response);
+    }
+
+    /**
+     * Evaluates a Java snippet in this JVM, see {@link JavaSnippetCompiler}.
+     * 
+     * @param snippet
+     *        the snippet
+     * @return the snippet's output and value or an empty string if it had
+     *         neither
+     */
+    String evaluateJava(String snippet) {
+        if (sandboxMode == SandboxMode.AST) { return "Java snippets need the security manager sandbox, they can't be checked when they are compiled"; }
+
+        BoundedWriter output = new BoundedWriter(MAX_OUTPUT_LENGTH);
+        Object result;
+        try {
+            Class<? extends JavaSnippet> snippetClass = javaCompiler.get(snippet);
+            result = sandbox.run(() -> {
+                SystemOutput.redirect(output);
+                try {
+                    //created in the sandbox too, creating it initializes the class
+                    return render(snippetClass.newInstance().run(), output, ResultRenderer.Syntax.JAVA);
+                } finally {
+                    SystemOutput.reset();
+                }
+            });
+        } catch(SnippetCompilationException ex) {
+            result = "compilation failed with error " + ex.getMessage();
+        } catch(ScriptLimitExceededException ex) {
+            result = "snippet cancelled, it " + ex.getMessage();
+        } catch(Exception ex) {
+            result = "undefined execution error: " + ex.getMessage();
+        }
+        LOGGER.info("Result:" + result);
+
+        return buildResponse(output, result);
+    }
+
+    /**
+     * Checks whether cancelled scripts are still running because they ignored
+     * their interrupt. Their threads can't be stopped, so a worker JVM that
+     * has any should be replaced.
+     * 
+     * @return true if there are runaway scripts
+     */
+    boolean hasRunawayScripts() {
+        return sandbox.hasRunaways();
+    }
+
+    private boolean isJavaAvailable() {
+        return sandboxMode == SandboxMode.SECURITY_MANAGER && javaCompiler.isAvailable();
+    }
+
+    private static String render(Object result, BoundedWriter output, ResultRenderer.Syntax syntax) {
+        if (result == null) { return null; }
+
+        return ResultRenderer.render(result, Math.max(MAX_OUTPUT_LENGTH - output.length() - 1, 0), syntax);
+    }
+
+    private static String buildResponse(BoundedWriter output, Object result) {
+        StringBuilder response = new StringBuilder(output.toString().trim());
+        if (output.isTruncated()) {
+            response.append("...");
+        }
+
+        if (result != null) {
+            if (response.length() > 0) {
+                response.append(' ');
+            }
+
+            String resultString = result.toString();
+            int remaining = Math.max(MAX_OUTPUT_LENGTH - response.length(), 0);
+            if (resultString.length() > remaining) {
+                response.append(resultString, 0, remaining).append("...");
+            } else {
+                response.append(resultString);
+            }
+        }
+        return response.toString();
     }
 
     public void evaluateAndCache(String commandText) {
+        if (workerPool != null) {
+            workerPool.load(commandText);
+            store(commandText, Collections.emptyMap());
+            return;
+        }
+
         LOGGER.finest("Compiling class to cache it");
 
-        groovyLoader.parseClass(createCodeSource(commandText), true);
+        Map<String, byte[]> classes = compile(commandText);
+        groovyLoader.define(classes);
+
+        //cached scripts were linked against the previous classes
+        scriptCache.clear();
+        staticScriptCache.clear();
+
+        store(commandText, classes);
+    }
+
+    private void store(String commandText, Map<String, byte[]> classes) {
+        if (loadedScriptStore == null) { return; }
+
+        try {
+            loadedScriptStore.save(commandText, classes, groovyConfigFingerprint);
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not store !!load-ed class, it will be gone after a restart.", e);
+        }
+    }
+
+    /**
+     * Compiles a !!load-ed script to bytecode.
+     * 
+     * @param commandText
+     *        the script
+     * @return the bytecode of the script's classes, keyed by class name
+     * @throws CompilationFailedException
+     *         if the script doesn't compile
+     */
+    private Map<String, byte[]> compile(String commandText) throws CompilationFailedException {
+        GroovyCodeSource codeSource = createCodeSource(commandText);
+        CompilationUnit unit = new CompilationUnit(groovyConfig, LoadedClassLoader.SANDBOX_CODE_SOURCE, groovyLoader);
+        unit.addSource(codeSource.getName(), commandText);
+        unit.compile(Phases.CLASS_GENERATION);
+
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (Object compiled : unit.getClasses()) {
+            GroovyClass groovyClass = (GroovyClass) compiled;
+            classes.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+        return classes;
     }
 
     private GroovyCodeSource createCodeSource(String commandText) {
         return new GroovyCodeSource(commandText, "UserScript", "/sandboxScript");
     }
+
+    /**
+     * Builds {@link ScriptRunner ScriptRunners}.
+     */
+    public static class Builder {
+
+        private ScriptWorkerPool  workerPool;
+
+        private LoadedScriptStore loadedScriptStore;
+
+        private CompileMode       compileMode   = CompileMode.DYNAMIC;
+
+        private SandboxMode       sandboxMode   = SandboxMode.SECURITY_MANAGER;
+
+        private List<String>      warmupScripts = DEFAULT_WARMUP;
+
+        private int               warmupRounds  = 0;
+
+        /**
+         * Evaluates the scripts in worker JVMs instead of the bot's JVM.
+         * 
+         * @param workerPool
+         *        the workers or null to evaluate scripts in this JVM (default)
+         * @return The Builder for chaining calls
+         */
+        public Builder workerPool(ScriptWorkerPool workerPool) {
+            this.workerPool = workerPool;
+            return this;
+        }
+
+        /**
+         * Persists !!load-ed classes, and restores the ones that were
+         * persisted earlier.
+         * 
+         * @param loadedScriptStore
+         *        the store or null not to persist them (default)
+         * @return The Builder for chaining calls
+         */
+        public Builder loadedScriptStore(LoadedScriptStore loadedScriptStore) {
+            this.loadedScriptStore = loadedScriptStore;
+            return this;
+        }
+
+        /**
+         * Sets how evals are compiled unless they ask for a mode of their
+         * own.
+         * 
+         * @param compileMode
+         *        the mode, {@link CompileMode#DYNAMIC} by default
+         * @return The Builder for chaining calls
+         */
+        public Builder compileMode(CompileMode compileMode) {
+            this.compileMode = compileMode;
+            return this;
+        }
+
+        /**
+         * Sets how scripts are kept from harming the bot. The mode must match
+         * how the JVM evaluating the scripts was set up: in
+         * {@link SandboxMode#SECURITY_MANAGER} mode the caller has to install
+         * the {@link com.gmail.inverseconduit.security.ScriptSecurityPolicy}
+         * and a security manager. {@link SandboxMode#AST} mode is only meant
+         * for runners in worker JVMs.
+         * 
+         * @param sandboxMode
+         *        the mode, {@link SandboxMode#SECURITY_MANAGER} by default
+         * @return The Builder for chaining calls
+         */
+        public Builder sandboxMode(SandboxMode sandboxMode) {
+            this.sandboxMode = sandboxMode;
+            return this;
+        }
+
+        /**
+         * Warms up the runner in the background once it's built. Workers
+         * warm up on their own, so this has no effect when scripts are
+         * evaluated in worker JVMs.
+         * 
+         * @param warmupScripts
+         *        the Groovy scripts to evaluate, {@link #DEFAULT_WARMUP} by
+         *        default
+         * @param warmupRounds
+         *        how many times to evaluate them or 0 not to warm up
+         *        (default)
+         * @return The Builder for chaining calls
+         */
+        public Builder warmup(List<String> warmupScripts, int warmupRounds) {
+            this.warmupScripts = warmupScripts;
+            this.warmupRounds = warmupRounds;
+            return this;
+        }
+
+        public ScriptRunner build() {
+            ScriptRunner runner = new ScriptRunner(this);
+            if (warmupRounds > 0 && workerPool == null) {
+                runner.startWarmup();
+            }
+            return runner;
+        }
+    }
 }
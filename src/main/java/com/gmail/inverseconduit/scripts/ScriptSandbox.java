@@ -0,0 +1,240 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs scripts on a separate thread and cancels them once they exceed their
+ * wall-clock deadline, their CPU-time budget or their allocation budget.<br />
+ * <br />
+ * Cancellation is cooperative: the script thread is interrupted, which the
+ * <tt>ThreadInterrupt</tt> checks compiled into every script turn into an
+ * exception. The caller gets its answer as soon as the limit is hit, whether
+ * or not the script has wound down yet. Scripts without such checks (e.g. Java
+ * snippets) can ignore the interrupt. Their threads are left to run, and once
+ * too many of them pile up, the sandbox refuses to run any more scripts. A
+ * worker JVM is replaced as soon as it has one (see {@link ScriptWorkerPool}).
+ */
+@ThreadSafe
+public class ScriptSandbox {
+
+    private static final Logger            LOGGER            = Logger.getLogger(ScriptSandbox.class.getName());
+
+    /**
+     * How often the budgets of a running script are checked.
+     */
+    private static final long              POLL_MILLIS       = 20;
+
+    /**
+     * How long a cancelled script may take to wind down before it's counted
+     * as a runaway.
+     */
+    private static final long              GRACE_MILLIS      = 1000;
+
+    /**
+     * How many runaway scripts may keep running before the sandbox refuses to
+     * run more scripts.
+     */
+    private static final int               MAX_RUNAWAYS      = 2;
+
+    private static final AtomicInteger     threadCount       = new AtomicInteger();
+
+    private final ExecutorService          executor          = Executors.newCachedThreadPool(ScriptSandbox::newThread);
+
+    private final ScheduledExecutorService reaper            = Executors.newSingleThreadScheduledExecutor(ScriptSandbox::newThread);
+
+    private final ThreadMXBean             threads           = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The number of cancelled scripts that ignored their interrupt and are
+     * still running.
+     */
+    private final AtomicInteger            runaways          = new AtomicInteger();
+
+    private final long                     wallClockMillis, cpuNanos, allocationBytes;
+
+    /**
+     * @param wallClockMillis
+     *        the wall-clock time a script may take, in milliseconds
+     * @param cpuMillis
+     *        the CPU time a script may use, in milliseconds
+     * @param allocationBytes
+     *        the number of bytes a script may allocate
+     */
+    public ScriptSandbox(long wallClockMillis, long cpuMillis, long allocationBytes) {
+        this.wallClockMillis = wallClockMillis;
+        this.cpuNanos = TimeUnit.MILLISECONDS.toNanos(cpuMillis);
+        this.allocationBytes = allocationBytes;
+    }
+
+    /**
+     * Runs a script within the limits of this sandbox.
+     * 
+     * @param script
+     *        the script to run
+     * @return the script's result
+     * @throws ScriptLimitExceededException
+     *         if the script was cancelled because it exceeded a limit, or it
+     *         was not started because too many runaway scripts are still
+     *         running
+     * @throws Exception
+     *         if the script threw an exception
+     */
+    public <T> T run(Callable<T> script) throws Exception {
+        if (runaways.get() >= MAX_RUNAWAYS) { throw new ScriptLimitExceededException("was not started, earlier scripts ignored their cancellation and are still running"); }
+
+        Execution<T> execution = new Execution<>(script);
+        Future<T> future = executor.submit(execution);
+        long deadline = System.currentTimeMillis() + wallClockMillis;
+        try {
+            while (true) {
+                try {
+                    return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch(TimeoutException e) {
+                    String exceeded = execution.exceededLimit(deadline);
+                    if (exceeded != null) {
+                        future.cancel(true);
+                        reaper.schedule(execution::checkStopped, GRACE_MILLIS, TimeUnit.MILLISECONDS);
+                        LOGGER.info("Cancelled script: " + exceeded);
+                        throw new ScriptLimitExceededException(exceeded);
+                    }
+                }
+            }
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) { throw (Exception) cause; }
+            if (cause instanceof Error) { throw (Error) cause; }
+            throw e;
+        } catch(InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether cancelled scripts ignored their interrupt and are still
+     * running. Their threads can't be stopped safely, only the JVM can be
+     * ended.
+     * 
+     * @return true if there are runaway scripts
+     */
+    public boolean hasRunaways() {
+        return runaways.get() > 0;
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ScriptSandbox-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        reaper.shutdownNow();
+    }
+
+    private class Execution<T> implements Callable<T> {
+
+        private final Callable<T> script;
+
+        private volatile long     threadId = -1;
+
+        private volatile long     cpuStart, allocationStart;
+
+        /**
+         * The thread running the script, null once the script is done.
+         */
+        private Thread            thread;
+
+        /**
+         * Whether the script is counted as a runaway.
+         */
+        private boolean           runaway;
+
+        private Execution(Callable<T> script) {
+            this.script = script;
+        }
+
+        @Override
+        public T call() throws Exception {
+            long id = Thread.currentThread().getId();
+            cpuStart = cpuTime(id);
+            allocationStart = allocatedBytes(id);
+            threadId = id;
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            try {
+                return script.call();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    if (runaway) {
+                        runaways.decrementAndGet();
+                    }
+                }
+                //clear the interrupt flag of a cancelled script, so the pooled thread can be reused
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Counts a cancelled script as a runaway if it's still running.
+         */
+        private synchronized void checkStopped() {
+            if (thread != null) {
+                LOGGER.warning("A cancelled script ignored its interrupt and is still running");
+                runaway = true;
+                runaways.incrementAndGet();
+            }
+        }
+
+        /**
+         * @param deadline
+         *        the wall-clock deadline
+         * @return a description of the exceeded limit or null if the script is
+         *         still within its limits
+         */
+        private String exceededLimit(long deadline) {
+            if (System.currentTimeMillis() > deadline) { return "took longer than " + wallClockMillis + "ms"; }
+
+            long id = threadId;
+            if (id < 0) {
+                //hasn't started yet
+                return null;
+            }
+
+            long cpu = cpuTime(id);
+            if (cpu >= 0 && cpu - cpuStart > cpuNanos) { return "used more than " + TimeUnit.NANOSECONDS.toMillis(cpuNanos) + "ms of CPU time"; }
+
+            long allocated = allocatedBytes(id);
+            if (allocated >= 0 && allocated - allocationStart > allocationBytes) { return "allocated more than " + (allocationBytes / 1024 / 1024) + "MB"; }
+
+            return null;
+        }
+    }
+
+    private long cpuTime(long threadId) {
+        return threads.isThreadCpuTimeSupported() ? threads.getThreadCpuTime(threadId) : -1;
+    }
+
+    private long allocatedBytes(long threadId) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) { return sunThreads.getThreadAllocatedBytes(threadId); }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,133 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.security.Policy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.gmail.inverseconduit.security.ScriptSecurityManager;
+import com.gmail.inverseconduit.security.ScriptSecurityPolicy;
+
+/**
+ * Entry point of the worker JVMs started by {@link ScriptWorkerPool}. A worker
+ * reads requests from stdin, evaluates them with an in-process
+ * {@link ScriptRunner} and writes the responses to stdout. The only argument
+ * is the name of the {@link SandboxMode} to run in.<br />
+ * <br />
+ * Every request starts with a type byte, followed by a length-prefixed UTF-8
+ * string. {@link #EVAL} requests carry the ID of the submitting user and the
+ * ordinal of the {@link CompileMode} between the two. {@link #LOAD} requests
+ * are not answered, {@link #EVAL} and {@link #JAVA} requests are answered
+ * with the response string, followed by a boolean telling the pool
+ * whether the worker should be recycled, because it's running low on memory
+ * or a cancelled script is still running in it. Once it
+ * has warmed up, the worker announces that it's ready by writing a single
+ * boolean.
+ */
+public final class ScriptWorker {
+
+    private static final Logger LOGGER       = Logger.getLogger(ScriptWorker.class.getName());
+
+    static final byte           EVAL         = 'E', LOAD = 'L', JAVA = 'J';
+
+    /**
+     * Recycle the worker once this much of its old generation is still in use
+     * after the last garbage collection.
+     */
+    private static final double MEMORY_LIMIT = 0.75;
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        //stdout belongs to the protocol, keep anything else from printing there
+        System.setOut(System.err);
+
+        //sandbox this ...
+        SandboxMode sandboxMode = (args.length > 0) ? SandboxMode.valueOf(args[0]) : SandboxMode.SECURITY_MANAGER;
+        if (sandboxMode == SandboxMode.SECURITY_MANAGER) {
+            Policy.setPolicy(ScriptSecurityPolicy.getInstance());
+            System.setSecurityManager(ScriptSecurityManager.getInstance());
+        }
+
+        ScriptRunner runner = new ScriptRunner.Builder().sandboxMode(sandboxMode).build();
+        runner.evaluate(0, "[1, 2, 3].collect { it * 2 }.sum()", CompileMode.DYNAMIC);
+        out.writeBoolean(true);
+        out.flush();
+
+        while (true) {
+            byte type;
+            try {
+                type = in.readByte();
+            } catch(EOFException e) {
+                //the pool closed the pipe
+                return;
+            }
+            int userId = (type == EVAL) ? in.readInt() : 0;
+            CompileMode mode = (type == EVAL) ? CompileMode.values()[in.readByte()] : null;
+            String text = readString(in);
+
+            if (type == LOAD) {
+                try {
+                    runner.evaluateAndCache(text);
+                } catch(RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Could not load script.", e);
+                }
+                continue;
+            }
+
+            writeString(out, (type == JAVA) ? runner.evaluateJava(text) : runner.evaluate(userId, text, mode));
+            //a runaway script's thread can't be stopped, only this JVM can
+            out.writeBoolean(isLowOnMemory() || runner.hasRunawayScripts());
+            out.flush();
+        }
+    }
+
+    /**
+     * Checks how much of the old generation survived the last collection.
+     * Unlike the heap's current usage, this doesn't count garbage that wasn't
+     * collected yet, so short-lived garbage of evals doesn't recycle the
+     * worker.
+     * 
+     * @return true if the worker should be replaced
+     */
+    private static boolean isLowOnMemory() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            //of the heap pools, only the old generation supports usage thresholds
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) {
+                continue;
+            }
+
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null) {
+                continue;
+            }
+            long max = (usage.getMax() < 0) ? Runtime.getRuntime().maxMemory() : usage.getMax();
+            if (usage.getUsed() > max * MEMORY_LIMIT) { return true; }
+        }
+        return false;
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private ScriptWorker() {}
+}
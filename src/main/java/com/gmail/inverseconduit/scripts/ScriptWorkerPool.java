@@ -0,0 +1,361 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Evaluates scripts in a pool of pre-started worker JVMs (see
+ * {@link ScriptWorker}), so a script's garbage, metaspace and CPU use don't
+ * slow down the chat, and evals from different rooms run in parallel.<br />
+ * <br />
+ * A worker is replaced by a fresh one after a number of evals, when it reports
+ * that it's low on memory or that a cancelled script is still running in it,
+ * or when it doesn't answer in time. Classes that are
+ * !!load-ed are replayed to every worker before its next eval.
+ */
+@ThreadSafe
+public class ScriptWorkerPool {
+
+    private static final Logger            LOGGER           = Logger.getLogger(ScriptWorkerPool.class.getName());
+
+    /**
+     * How long an eval may take in total, including waiting for a worker to
+     * start: the wall-clock limit of the workers' sandbox plus some slack for
+     * compiling the script and talking to the worker. Workers cancel runaway
+     * scripts themselves, so the timeout only kicks in if a worker hangs.
+     */
+    private static final long              RESPONSE_TIMEOUT = ScriptRunner.MAX_WALL_CLOCK + TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * How long to wait before trying again to start a worker that failed to
+     * start. The delay doubles with each failure, up to the maximum.
+     */
+    private static final long              RETRY_MIN_MILLIS = TimeUnit.SECONDS.toMillis(1), RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * How often a request that waits for a starting worker checks whether
+     * the start failed.
+     */
+    private static final long              POLL_MILLIS      = 100;
+
+    private final int                      maxEvals, maxHeapMb;
+
+    private final SandboxMode              sandboxMode;
+
+    private final BlockingQueue<Worker>    idle             = new LinkedBlockingQueue<>();
+
+    /**
+     * The number of workers that are being started.
+     */
+    private final AtomicInteger            starting         = new AtomicInteger();
+
+    /**
+     * The number of workers that are running, idle or busy.
+     */
+    private final AtomicInteger            alive            = new AtomicInteger();
+
+    /**
+     * The source code of all !!load-ed classes, in the order they were loaded.
+     */
+    private final List<String>             loaded           = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService          executor         = Executors.newCachedThreadPool(ScriptWorkerPool::newThread);
+
+    private final ScheduledExecutorService retries          = Executors.newSingleThreadScheduledExecutor(ScriptWorkerPool::newThread);
+
+    private volatile boolean               shutdown         = false;
+
+    /**
+     * Creates the pool and starts warming up its workers in the background.
+     * 
+     * @param size
+     *        the number of worker JVMs
+     * @param maxEvals
+     *        the number of evals after which a worker is replaced
+     * @param maxHeapMb
+     *        the maximum heap size of each worker, in megabytes
+     */
+    public ScriptWorkerPool(int size, int maxEvals, int maxHeapMb) {
+        this(size, maxEvals, maxHeapMb, SandboxMode.SECURITY_MANAGER);
+    }
+
+    /**
+     * Creates the pool and starts warming up its workers in the background.
+     * 
+     * @param size
+     *        the number of worker JVMs
+     * @param maxEvals
+     *        the number of evals after which a worker is replaced
+     * @param maxHeapMb
+     *        the maximum heap size of each worker, in megabytes
+     * @param sandboxMode
+     *        how the workers keep scripts from harming them
+     */
+    public ScriptWorkerPool(int size, int maxEvals, int maxHeapMb, SandboxMode sandboxMode) {
+        this.maxEvals = maxEvals;
+        this.maxHeapMb = maxHeapMb;
+        this.sandboxMode = sandboxMode;
+        for (int i = 0; i < size; i++) {
+            startWorker();
+        }
+    }
+
+    /**
+     * Evaluates a script in one of the workers. Every worker keeps its own
+     * variables per user, so variables are not guaranteed to survive from one
+     * eval to the next.
+     * 
+     * @param userId
+     *        the ID of the user who submitted the script
+     * @param script
+     *        the script
+     * @param mode
+     *        how to compile the script
+     * @return the response (see
+     *         {@link ScriptRunner#evaluate(int, String, CompileMode)})
+     */
+    public String evaluate(int userId, String script, CompileMode mode) {
+        return submit(worker -> worker.evaluate(userId, script, mode));
+    }
+
+    /**
+     * Evaluates a Java snippet in one of the workers.
+     * 
+     * @param snippet
+     *        the snippet
+     * @return the response (see {@link ScriptRunner#evaluateJava(String)})
+     */
+    public String evaluateJava(String snippet) {
+        return submit(worker -> worker.evaluateJava(snippet));
+    }
+
+    /**
+     * Sends a request to an idle worker. If all workers are busy, the request
+     * is turned down right away instead of holding up the chat. Only while a
+     * worker is being started, the request waits for it.
+     */
+    private String submit(Request request) {
+        long deadline = System.currentTimeMillis() + RESPONSE_TIMEOUT;
+        Worker worker = idle.poll();
+        try {
+            while (worker == null && starting.get() > 0 && System.currentTimeMillis() < deadline) {
+                worker = idle.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "evaluation interrupted";
+        }
+        if (worker == null) {
+            //poll again after checking, in case the last starting worker became idle in between
+            worker = idle.poll();
+        }
+        if (worker == null) { return (alive.get() == 0) ? "no script workers available, try again later" : "all script workers are busy, try again later"; }
+
+        Worker chosen = worker;
+        Future<WorkerResponse> future = executor.submit(() -> request.send(chosen));
+        try {
+            WorkerResponse response = future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            if (response.recycle || worker.evals >= maxEvals) {
+                replace(worker);
+            } else {
+                idle.add(worker);
+            }
+            return response.text;
+        } catch(TimeoutException e) {
+            replace(worker);
+            return "script cancelled, the worker did not answer in time";
+        } catch(ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Script worker failed.", e.getCause());
+            replace(worker);
+            return "script worker failed: " + e.getCause().getMessage();
+        } catch(InterruptedException e) {
+            replace(worker);
+            Thread.currentThread().interrupt();
+            return "evaluation interrupted";
+        }
+    }
+
+    /**
+     * Loads a class into all workers. The workers compile it right before
+     * their next eval.
+     * 
+     * @param script
+     *        the source code of the class
+     */
+    public void load(String script) {
+        loaded.add(script);
+    }
+
+    /**
+     * Stops all workers.
+     */
+    public void shutdown() {
+        shutdown = true;
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+        executor.shutdownNow();
+        retries.shutdownNow();
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ScriptWorkerPool");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void replace(Worker worker) {
+        alive.decrementAndGet();
+        worker.destroy();
+        if ( !shutdown) {
+            startWorker();
+        }
+    }
+
+    private void startWorker() {
+        startWorker(0);
+    }
+
+    /**
+     * @param retryMillis
+     *        how long the last attempt waited before it started, 0 if this
+     *        is the first attempt
+     */
+    private void startWorker(long retryMillis) {
+        starting.incrementAndGet();
+        executor.execute(() -> spawn(retryMillis));
+    }
+
+    private void spawn(long retryMillis) {
+        try {
+            Worker worker = new Worker();
+            if (shutdown) {
+                worker.destroy();
+                return;
+            }
+            alive.incrementAndGet();
+            idle.add(worker);
+            LOGGER.fine("Script worker started");
+        } catch(IOException e) {
+            long delay = (retryMillis == 0) ? RETRY_MIN_MILLIS : Math.min(retryMillis * 2, RETRY_MAX_MILLIS);
+            LOGGER.log(Level.SEVERE, "Could not start script worker, trying again in " + delay + "ms.", e);
+            if ( !shutdown) {
+                retries.schedule(() -> startWorker(delay), delay, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            starting.decrementAndGet();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        WorkerResponse send(Worker worker) throws IOException;
+    }
+
+    private static class WorkerResponse {
+
+        private final String  text;
+
+        /**
+         * Whether the worker asked to be replaced, because it's low on memory
+         * or a cancelled script is still running in it.
+         */
+        private final boolean recycle;
+
+        private WorkerResponse(String text, boolean recycle) {
+            this.text = text;
+            this.recycle = recycle;
+        }
+    }
+
+    private class Worker {
+
+        private final Process          process;
+
+        private final DataInputStream  in;
+
+        private final DataOutputStream out;
+
+        private int                    evals, loadedCount;
+
+        /**
+         * Starts a worker JVM and waits until it has warmed up.
+         * 
+         * @throws IOException
+         *         if the worker could not be started
+         */
+        private Worker() throws IOException {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java, "-Xmx" + maxHeapMb + "m", "-cp", System.getProperty("java.class.path"), ScriptWorker.class.getName(),
+                    sandboxMode.name());
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            process = builder.start();
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+
+            try {
+                in.readBoolean();
+            } catch(IOException e) {
+                destroy();
+                throw e;
+            }
+        }
+
+        private WorkerResponse evaluate(int userId, String script, CompileMode mode) throws IOException {
+            replayLoaded();
+            out.writeByte(ScriptWorker.EVAL);
+            out.writeInt(userId);
+            out.writeByte(mode.ordinal());
+            ScriptWorker.writeString(out, script);
+            return readResponse();
+        }
+
+        private WorkerResponse evaluateJava(String snippet) throws IOException {
+            out.writeByte(ScriptWorker.JAVA);
+            ScriptWorker.writeString(out, snippet);
+            return readResponse();
+        }
+
+        private void replayLoaded() throws IOException {
+            while (loadedCount < loaded.size()) {
+                out.writeByte(ScriptWorker.LOAD);
+                ScriptWorker.writeString(out, loaded.get(loadedCount++));
+            }
+        }
+
+        private WorkerResponse readResponse() throws IOException {
+            evals++;
+            out.flush();
+
+            String text = ScriptWorker.readString(in);
+            boolean recycle = in.readBoolean();
+            return new WorkerResponse(text, recycle);
+        }
+
+        private void destroy() {
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.gmail.inverseconduit.scripts;
+
+/**
+ * Thrown when a Java snippet doesn't compile.
+ */
+public class SnippetCompilationException extends RuntimeException {
+
+    private static final long serialVersionUID = -2671093375204925641L;
+
+    public SnippetCompilationException(String message) {
+        super(message);
+    }
+}
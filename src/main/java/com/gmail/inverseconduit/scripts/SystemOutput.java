@@ -0,0 +1,125 @@
+package com.gmail.inverseconduit.scripts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Lets threads redirect <tt>System.out</tt> and <tt>System.err</tt> on their
+ * own. Once {@link #install() installed}, both streams write to the writer the
+ * current thread redirected them to, or to the original streams if it didn't.
+ * Java snippets print to their eval's output this way, since unlike Groovy
+ * scripts they can't be handed an "out" variable.
+ */
+@ThreadSafe
+final class SystemOutput extends OutputStream {
+
+    private static final ThreadLocal<Decoder> target    = new ThreadLocal<>();
+
+    private static boolean                    installed = false;
+
+    private final OutputStream                original;
+
+    private SystemOutput(OutputStream original) {
+        this.original = original;
+    }
+
+    /**
+     * Replaces <tt>System.out</tt> and <tt>System.err</tt>, unless that was
+     * done already.
+     */
+    static synchronized void install() {
+        if (installed) { return; }
+
+        System.setOut(new PrintStream(new SystemOutput(System.out), true));
+        System.setErr(new PrintStream(new SystemOutput(System.err), true));
+        installed = true;
+    }
+
+    /**
+     * Redirects <tt>System.out</tt> and <tt>System.err</tt> of the current
+     * thread until {@link #reset()} is called.
+     *
+     * @param writer
+     *        where to print to
+     */
+    static void redirect(Writer writer) {
+        target.set(new Decoder(writer));
+    }
+
+    /**
+     * Lets the current thread print to the original streams again.
+     */
+    static void reset() {
+        target.remove();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Decoder decoder = target.get();
+        if (decoder == null) {
+            original.write(b, off, len);
+        } else {
+            decoder.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (target.get() == null) {
+            original.flush();
+        }
+    }
+
+    /**
+     * Turns the bytes the print streams encoded back into characters.
+     */
+    private static class Decoder {
+
+        private final Writer         writer;
+
+        private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ByteBuffer     bytes   = ByteBuffer.allocate(256);
+
+        private final CharBuffer     chars   = CharBuffer.allocate(256);
+
+        private Decoder(Writer writer) {
+            this.writer = writer;
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, bytes.remaining());
+                bytes.put(b, off, n);
+                off += n;
+                len -= n;
+
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, false);
+                    chars.flip();
+                    writer.write(chars.array(), 0, chars.limit());
+                    chars.clear();
+                } while (result.isOverflow());
+                //keeps the start of a character that was split between writes
+                bytes.compact();
+            }
+        }
+    }
+}
@@ -1,21 +1,55 @@
 package com.gmail.inverseconduit.security;
 
+import java.net.URL;
 import java.security.*;
+import java.util.Collections;
+import java.util.Set;
 
+import com.google.common.collect.MapMaker;
+
+/**
+ * Grants everything to the bot's own code and nothing to scripts, which are
+ * recognized by their code source location "file:/sandboxScript".<br />
+ * <br />
+ * The policy is consulted for every domain on the stack of every permission
+ * check in the JVM, including the many checks of HtmlUnit and the javadoc zip
+ * files. So the domains of trusted code are remembered by identity and
+ * allowed without looking at their code source again. They are held weakly,
+ * so remembering a domain doesn't keep its class loader alive.
+ */
 public class ScriptSecurityPolicy extends Policy {
 
-    private static final ScriptSecurityPolicy instance = new ScriptSecurityPolicy();
+    private static final ScriptSecurityPolicy instance       = new ScriptSecurityPolicy();
+
+    /**
+     * Compares the domains by identity.
+     */
+    private final Set<ProtectionDomain>       trustedDomains = Collections.newSetFromMap(new MapMaker().weakKeys().<ProtectionDomain, Boolean> makeMap());
 
     public static ScriptSecurityPolicy getInstance() {
         return instance;
     }
 
+    /**
+     * Tells whether code comes from a script.
+     * 
+     * @param codeSource
+     *        the code source of the code, may be null
+     * @return true if the code is sandboxed
+     */
+    public static boolean isSandboxed(CodeSource codeSource) {
+        if (codeSource == null) { return false; }
+
+        URL location = codeSource.getLocation();
+        return location != null && "/sandboxScript".equals(location.getPath()) && "file".equals(location.getProtocol());
+    }
+
     @Override
     public PermissionCollection getPermissions(CodeSource codeSource) {
         Permissions p = new Permissions();
-        if (codeSource.getLocation().toString().equals("file:/sandboxScript"))
-            System.out.println(codeSource.getLocation().toString());
-        else p.add(new AllPermission());
+        if ( !isSandboxed(codeSource)) {
+            p.add(new AllPermission());
+        }
         return p;
     }
 
@@ -26,9 +60,10 @@ public class ScriptSecurityPolicy extends Policy {
 
     @Override
     public boolean implies(ProtectionDomain domain, Permission permission) {
-        if (domain.getCodeSource().getLocation().toString().equals("file:/sandboxScript"))
-            // TODO This doesn't seem right, but it works.
-            throw new SecurityException("You can't do that.");
+        if (trustedDomains.contains(domain)) { return true; }
+        if (isSandboxed(domain.getCodeSource())) { return false; }
+
+        trustedDomains.add(domain);
         return true;
     }
 }
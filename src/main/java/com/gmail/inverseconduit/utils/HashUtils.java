@@ -0,0 +1,35 @@
+package com.gmail.inverseconduit.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class HashUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Hashes a string with SHA-256.
+     * 
+     * @param text
+     *        the string to hash (encoded as UTF-8)
+     * @return the hash as lower-case hex string
+     */
+    public static String sha256(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            //every JVM is required to support SHA-256
+            throw new RuntimeException(e);
+        }
+
+        byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -2,6 +2,7 @@ package com.gmail.inverseconduit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -9,6 +10,9 @@ import java.util.Properties;
 
 import org.junit.Test;
 
+import com.gmail.inverseconduit.scripts.CompileMode;
+import com.gmail.inverseconduit.scripts.SandboxMode;
+
 /**
  * @author Michael Angstadt
  */
@@ -22,7 +26,21 @@ public class BotConfigTest {
         assertNull(config.getLoginPassword());
         assertEquals("!!", config.getTrigger());
         assertEquals(Paths.get("javadocs"), config.getJavadocsDir());
+        assertEquals(32, config.getJavadocCacheSize());
+        assertEquals(Paths.get("javadoc-usage.txt"), config.getJavadocUsageFile());
+        assertEquals(50, config.getJavadocWarmup());
         assertEquals(Arrays.asList(1), config.getRooms());
+        assertEquals(10, config.getDefaultCommandQuota().getPerUser());
+        assertEquals(30, config.getDefaultCommandQuota().getPerRoom());
+        assertTrue(config.getCommandQuotas().isEmpty());
+        assertEquals(0, config.getScriptWorkers());
+        assertEquals(100, config.getScriptWorkerEvals());
+        assertEquals(128, config.getScriptWorkerHeap());
+        assertEquals(Paths.get("loaded-scripts"), config.getLoadedScriptsDir());
+        assertEquals(CompileMode.DYNAMIC, config.getCompileMode());
+        assertEquals(SandboxMode.SECURITY_MANAGER, config.getSandboxMode());
+        assertNull(config.getScriptWarmupFile());
+        assertEquals(3, config.getScriptWarmupRounds());
     }
 
     @Test
@@ -32,14 +50,41 @@ public class BotConfigTest {
         props.setProperty("PASSWORD", "password");
         props.setProperty("TRIGGER", "**");
         props.setProperty("JAVADOCS", "dir");
+        props.setProperty("JAVADOC-CACHE-SIZE", "8");
+        props.setProperty("JAVADOC-USAGE", "");
+        props.setProperty("JAVADOC-WARMUP", "0");
         props.setProperty("ROOMS", "1,2 , 3");
+        props.setProperty("RATE-LIMIT", "");
+        props.setProperty("RATE-LIMIT.eval", "2,5,30");
+        props.setProperty("SCRIPT-WORKERS", "2");
+        props.setProperty("SCRIPT-WORKER-EVALS", "10");
+        props.setProperty("SCRIPT-WORKER-HEAP", "64");
+        props.setProperty("LOADED-SCRIPTS", "");
+        props.setProperty("GROOVY-COMPILE", "auto");
+        props.setProperty("SCRIPT-SANDBOX", "ast");
+        props.setProperty("SCRIPT-WARMUP", "warmup.groovy");
+        props.setProperty("SCRIPT-WARMUP-ROUNDS", "0");
 
         BotConfig config = new BotConfig(props);
         assertEquals("email", config.getLoginEmail());
         assertEquals("password", config.getLoginPassword());
         assertEquals("**", config.getTrigger());
         assertEquals(Paths.get("dir"), config.getJavadocsDir());
+        assertEquals(8, config.getJavadocCacheSize());
+        assertNull(config.getJavadocUsageFile());
+        assertEquals(0, config.getJavadocWarmup());
         assertEquals(Arrays.asList(1, 2, 3), config.getRooms());
+        assertNull(config.getDefaultCommandQuota());
+        assertEquals(2, config.getCommandQuotas().get("eval").getPerUser());
+        assertEquals(5, config.getCommandQuotas().get("eval").getPerRoom());
+        assertEquals(2, config.getScriptWorkers());
+        assertEquals(10, config.getScriptWorkerEvals());
+        assertEquals(64, config.getScriptWorkerHeap());
+        assertNull(config.getLoadedScriptsDir());
+        assertEquals(CompileMode.AUTO, config.getCompileMode());
+        assertEquals(SandboxMode.AST, config.getSandboxMode());
+        assertEquals(Paths.get("warmup.groovy"), config.getScriptWarmupFile());
+        assertEquals(0, config.getScriptWarmupRounds());
     }
 
     @Test()
@@ -52,4 +97,14 @@ public class BotConfigTest {
         assertEquals(1, config.getRooms().size());
         assertEquals((Integer) 1, config.getRooms().get(0));
     }
+
+    @Test
+    public void ast_sandbox_needs_workers() {
+        Properties props = new Properties();
+        props.setProperty("SCRIPT-SANDBOX", "ast");
+
+        BotConfig config = new BotConfig(props);
+
+        assertEquals(SandboxMode.SECURITY_MANAGER, config.getSandboxMode());
+    }
 }
@@ -0,0 +1,21 @@
+package com.gmail.inverseconduit.bot;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DefaultBotTest {
+
+    @Test
+    public void invokes() {
+        assertTrue(DefaultBot.invokes("java 1 + 1", "java"));
+        assertTrue(DefaultBot.invokes("java\n1 + 1", "java"));
+        assertTrue(DefaultBot.invokes("javadoc: String", "javadoc"));
+        assertTrue(DefaultBot.invokes("help", "help"));
+
+        //one command's name is a prefix of the other's
+        assertFalse(DefaultBot.invokes("javadoc: String", "java"));
+        assertFalse(DefaultBot.invokes("java 1 + 1", "javadoc"));
+    }
+}
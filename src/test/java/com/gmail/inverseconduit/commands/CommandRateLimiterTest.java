@@ -0,0 +1,103 @@
+package com.gmail.inverseconduit.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CommandRateLimiterTest {
+
+    private final CommandQuota quota = new CommandQuota(2, 3, 60, TimeUnit.SECONDS);
+
+    @Test
+    public void unlimited() {
+        CommandRateLimiter limiter = new CommandRateLimiter();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        }
+    }
+
+    @Test
+    public void per_user() {
+        CommandRateLimiter limiter = new CommandRateLimiter(quota, Collections.emptyMap());
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 0));
+
+        //other users are not affected
+        assertTrue(limiter.tryAcquire("eval", 2, 1, 0));
+    }
+
+    @Test
+    public void per_room() {
+        CommandRateLimiter limiter = new CommandRateLimiter(quota, Collections.emptyMap());
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 2, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 3, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 4, 1, 0));
+
+        //other rooms are not affected
+        assertTrue(limiter.tryAcquire("eval", 4, 2, 0));
+    }
+
+    @Test
+    public void room_rejection_does_not_charge_user() {
+        CommandRateLimiter limiter = new CommandRateLimiter(quota, Collections.emptyMap());
+        assertTrue(limiter.tryAcquire("eval", 2, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 3, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 4, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 0));
+
+        //user 1 still has both permits in another room
+        assertTrue(limiter.tryAcquire("eval", 1, 2, 0));
+        assertTrue(limiter.tryAcquire("eval", 1, 2, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 2, 0));
+    }
+
+    @Test
+    public void per_command() {
+        CommandQuota strict = new CommandQuota(1, 1, 60, TimeUnit.SECONDS);
+        CommandRateLimiter limiter = new CommandRateLimiter(null, Collections.singletonMap("eval", strict));
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 0));
+
+        //commands without a quota are not limited
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("javadoc", 1, 1, 0));
+        }
+    }
+
+    @Test
+    public void window_slides() {
+        CommandRateLimiter limiter = new CommandRateLimiter(quota, Collections.emptyMap());
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 0));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 59_000));
+
+        //half of the previous window still counts
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 90_000));
+        assertFalse(limiter.tryAcquire("eval", 1, 1, 90_000));
+
+        //counters expire on their own
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 300_000));
+        assertTrue(limiter.tryAcquire("eval", 1, 1, 300_000));
+    }
+
+    @Test
+    public void parse() {
+        CommandQuota quota = CommandQuota.parse("5, 20, 60");
+        assertEquals(5, quota.getPerUser());
+        assertEquals(20, quota.getPerRoom());
+        assertEquals(TimeUnit.SECONDS.toMillis(60), quota.getWindowMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_invalid() {
+        CommandQuota.parse("5,20");
+    }
+}
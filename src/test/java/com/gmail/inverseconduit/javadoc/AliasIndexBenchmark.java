@@ -0,0 +1,110 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+/**
+ * Compares how much memory {@link AliasIndex} takes up with the hash multimap
+ * that {@link JavadocDao} used to store the class name aliases in (four
+ * aliases per class). Not a unit test, run it with <tt>mvn test-compile
+ * exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.gmail.inverseconduit.javadoc.AliasIndexBenchmark
+ * [-Dexec.args="30000"]</tt> or from the IDE. The class names are made up of
+ * words that are common in Java class names. The class name strings
+ * themselves are not counted, since they are kept either way.
+ * @author Michael Angstadt
+ */
+public class AliasIndexBenchmark {
+	//@formatter:off
+	private static final String[] PACKAGES = {
+		"java.lang", "java.util", "java.util.concurrent", "java.io", "java.nio", "java.nio.file", "java.net", "java.awt",
+		"javax.swing", "javax.xml.stream", "org.apache.commons.lang3", "com.google.common.collect", "org.junit", "org.slf4j"
+	};
+
+	private static final String[] WORDS = {
+		"Abstract", "Array", "Atomic", "Buffered", "Byte", "Cache", "Channel", "Char", "Class", "Collection",
+		"Concurrent", "Context", "Date", "Default", "Deque", "Event", "Exception", "Factory", "File", "Format",
+		"Handler", "Hash", "Input", "Integer", "Iterator", "Linked", "List", "Listener", "Loader", "Long",
+		"Manager", "Map", "Node", "Object", "Output", "Parser", "Path", "Pool", "Print", "Queue",
+		"Reader", "Reference", "Resource", "Selector", "Set", "Socket", "Sorted", "Stream", "String", "Tree"
+	};
+	//@formatter:on
+
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 30000;
+
+		Random random = new Random(42);
+		Set<String> set = new LinkedHashSet<>();
+		while (set.size() < count) {
+			StringBuilder sb = new StringBuilder(PACKAGES[random.nextInt(PACKAGES.length)]).append('.');
+			int words = 1 + random.nextInt(3);
+			for (int i = 0; i < words; i++) {
+				sb.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			set.add(sb.toString());
+		}
+		List<String> fullNames = new ArrayList<>(set);
+
+		long multimap = retainedBytes(() -> {
+			ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+			ImmutableSetMultimap.Builder<String, String> aliases = ImmutableSetMultimap.builder();
+			for (String fullName : fullNames) {
+				String simpleName = new ClassName(fullName).getSimple();
+				classNames.add(fullName);
+				aliases.put(simpleName.toLowerCase(), fullName);
+				aliases.put(simpleName, fullName);
+				aliases.put(fullName.toLowerCase(), fullName);
+				aliases.put(fullName, fullName);
+			}
+			return new Object[] { classNames.build(), aliases.build() };
+		});
+
+		long sortedArrays = retainedBytes(() -> {
+			AliasIndex.Builder builder = new AliasIndex.Builder();
+			for (String fullName : fullNames) {
+				builder.add(new ClassName(fullName));
+			}
+			return builder.build();
+		});
+
+		System.out.printf("%d classes%n", fullNames.size());
+		System.out.printf("ImmutableSetMultimap: %,d bytes (%d per class)%n", multimap, multimap / fullNames.size());
+		System.out.printf("AliasIndex:           %,d bytes (%d per class, %.0f%% less)%n", sortedArrays, sortedArrays / fullNames.size(), 100.0 - sortedArrays * 100.0 / multimap);
+	}
+
+	/**
+	 * Estimates how much heap an object retains by comparing the used heap
+	 * before and after creating it. Takes the median of several runs.
+	 * @param factory creates the object
+	 * @return the retained size in bytes
+	 */
+	private static long retainedBytes(Supplier<Object> factory) {
+		List<Long> sizes = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			long before = usedHeap();
+			Object object = factory.get();
+			long after = usedHeap();
+			sizes.add(after - before);
+			if (object.hashCode() == 42) {
+				System.out.print("");
+			}
+		}
+		sizes.sort(null);
+		return sizes.get(sizes.size() / 2);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
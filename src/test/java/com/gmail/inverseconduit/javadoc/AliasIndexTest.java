@@ -0,0 +1,65 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class AliasIndexTest {
+	private final AliasIndex index;
+	{
+		AliasIndex.Builder builder = new AliasIndex.Builder();
+		for (String name : Arrays.asList("java.util.List", "java.awt.List", "java.util.ArrayList", "java.lang.String", "java.lang.StringBuilder", "com.example.FOO", "com.example.Foo", "Default")) {
+			builder.add(new ClassName(name));
+		}
+		index = builder.build();
+	}
+
+	@Test
+	public void get() {
+		assertEquals(new HashSet<>(Arrays.asList("java.util.List", "java.awt.List")), index.get("List", true));
+		assertEquals(new HashSet<>(Arrays.asList("java.util.List", "java.awt.List")), index.get("list", false));
+		assertTrue(index.get("list", true).isEmpty());
+
+		assertEquals(new HashSet<>(Arrays.asList("java.lang.String")), index.get("java.lang.String", true));
+		assertEquals(new HashSet<>(Arrays.asList("java.lang.String")), index.get("JAVA.LANG.STRING", false));
+		assertTrue(index.get("lang.String", false).isEmpty());
+
+		//classes whose names only differ in case
+		assertEquals(new HashSet<>(Arrays.asList("com.example.Foo")), index.get("Foo", true));
+		assertEquals(new HashSet<>(Arrays.asList("com.example.FOO", "com.example.Foo")), index.get("foo", false));
+
+		//class in the default package
+		assertEquals(new HashSet<>(Arrays.asList("Default")), index.get("Default", true));
+		assertEquals(new HashSet<>(Arrays.asList("Default")), index.get("default", false));
+
+		assertTrue(index.get("Map", false).isEmpty());
+		assertTrue(index.get("", false).isEmpty());
+	}
+
+	@Test
+	public void getByPrefix() {
+		assertEquals(new HashSet<>(Arrays.asList("java.lang.String", "java.lang.StringBuilder")), index.getByPrefix("Str"));
+		assertEquals(new HashSet<>(Arrays.asList("java.lang.String", "java.lang.StringBuilder")), index.getByPrefix("java.lang."));
+		assertEquals(new HashSet<>(Arrays.asList("java.util.List", "java.awt.List")), index.getByPrefix("LIS"));
+		assertEquals(new HashSet<>(Arrays.asList("java.util.List", "java.util.ArrayList")), index.getByPrefix("java.util"));
+		assertTrue(index.getByPrefix("zzz").isEmpty());
+		assertEquals(8, index.getByPrefix("").size());
+	}
+
+	@Test
+	public void contains() {
+		assertTrue(index.contains("java.util.List"));
+		assertFalse(index.contains("java.util.list"));
+		assertFalse(index.contains("List"));
+		assertEquals(8, index.size());
+		assertEquals(8, index.getClassNames().size());
+	}
+}
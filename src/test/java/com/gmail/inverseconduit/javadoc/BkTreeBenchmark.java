@@ -0,0 +1,112 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how long {@link BkTree} takes to find the class names that are
+ * similar to a misspelled name, compared to computing the distance to every
+ * name. Not a unit test, run it with <tt>mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.gmail.inverseconduit.javadoc.BkTreeBenchmark
+ * [-Dexec.args="50000"]</tt> or from the IDE. The class names are made up of
+ * words that are common in Java class names.
+ * @author Michael Angstadt
+ */
+public class BkTreeBenchmark {
+	private static final int WARMUP_ITERATIONS = 2000, ITERATIONS = 10000;
+
+	//@formatter:off
+	private static final String[] WORDS = {
+		"Abstract", "Array", "Atomic", "Buffered", "Byte", "Cache", "Channel", "Char", "Class", "Collection",
+		"Concurrent", "Context", "Date", "Default", "Deque", "Event", "Exception", "Factory", "File", "Format",
+		"Handler", "Hash", "Input", "Integer", "Iterator", "Linked", "List", "Listener", "Loader", "Long",
+		"Manager", "Map", "Node", "Object", "Output", "Parser", "Path", "Pool", "Print", "Queue",
+		"Reader", "Reference", "Resource", "Selector", "Set", "Socket", "Sorted", "Stream", "String", "Tree",
+		"Type", "Url", "Util", "Value", "View", "Weak", "Writer", "Zip"
+	};
+
+	private static final String[] QUERIES = {
+		"arraylsit", "hashmpa", "linkedhashmpa", "bufferedraeder", "concurrenthashmap", "stirng", "zipinputstraem", "weakreferenc"
+	};
+	//@formatter:on
+
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 30000;
+
+		Random random = new Random(42);
+		Set<String> names = new LinkedHashSet<>();
+		names.add("arraylist");
+		names.add("hashmap");
+		names.add("linkedhashmap");
+		names.add("bufferedreader");
+		names.add("string");
+		names.add("zipinputstream");
+		names.add("weakreference");
+		while (names.size() < count) {
+			StringBuilder sb = new StringBuilder();
+			int words = 2 + random.nextInt(3);
+			for (int i = 0; i < words; i++) {
+				sb.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			names.add(sb.toString().toLowerCase());
+		}
+
+		BkTree<String> tree = new BkTree<>();
+		for (String name : names) {
+			tree.add(name, name);
+		}
+		List<String> list = new ArrayList<>(names);
+
+		double treeMicros = microsPerQuery(() -> {
+			int found = 0;
+			for (String query : QUERIES) {
+				found += tree.search(query, 2).size();
+			}
+			return found;
+		});
+		double scanMicros = microsPerQuery(() -> {
+			int found = 0;
+			for (String query : QUERIES) {
+				BkTree.Query q = new BkTree.Query(query);
+				for (String name : list) {
+					if (q.distance(name) <= 2) {
+						found++;
+					}
+				}
+			}
+			return found;
+		});
+
+		System.out.printf("%d names, %d queries, max distance 2%n", tree.size(), QUERIES.length);
+		for (String query : QUERIES) {
+			System.out.println(query + " -> " + tree.search(query, 2).stream().map(BkTree.Match::getKey).limit(5).collect(Collectors.toList()));
+		}
+		System.out.printf("BK-tree: %.1f us per query%n", treeMicros);
+		System.out.printf("Scan:    %.1f us per query (%.1fx slower)%n", scanMicros, scanMicros / treeMicros);
+	}
+
+	private static double microsPerQuery(Op op) {
+		int sink = 0;
+		for (int i = 0; i < WARMUP_ITERATIONS / 10; i++) {
+			sink += op.run();
+		}
+		long start = System.nanoTime();
+		int iterations = ITERATIONS / 10;
+		for (int i = 0; i < iterations; i++) {
+			sink += op.run();
+		}
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return (System.nanoTime() - start) / 1000.0 / iterations / QUERIES.length;
+	}
+
+	private interface Op {
+		int run();
+	}
+}
@@ -0,0 +1,118 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class BkTreeTest {
+	@Test
+	public void distance() {
+		assertEquals(0, new BkTree.Query("arraylist").distance("arraylist"));
+		assertEquals(2, new BkTree.Query("arraylsit").distance("arraylist"));
+		assertEquals(1, new BkTree.Query("hashmap").distance("hashmp"));
+		assertEquals(3, new BkTree.Query("").distance("map"));
+		assertEquals(3, new BkTree.Query("map").distance(""));
+		assertEquals(1, new BkTree.Query("café").distance("cafe"));
+	}
+
+	@Test
+	public void distance_matches_dynamic_programming() {
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			//include queries that are too long for the bit-vector algorithm
+			String a = randomString(random, random.nextInt((i % 10 == 0) ? 100 : 20));
+			String b = randomString(random, random.nextInt(20));
+			assertEquals(a + " " + b, levenshtein(a, b), new BkTree.Query(a).distance(b));
+		}
+	}
+
+	@Test
+	public void search() {
+		BkTree<String> tree = new BkTree<>();
+		tree.add("list", "java.util.List");
+		tree.add("list", "java.awt.List");
+		tree.add("arraylist", "java.util.ArrayList");
+		tree.add("linkedlist", "java.util.LinkedList");
+		tree.add("hashmap", "java.util.HashMap");
+		assertEquals(4, tree.size());
+
+		List<BkTree.Match<String>> matches = tree.search("arraylsit", 2);
+		assertEquals(1, matches.size());
+		assertEquals("arraylist", matches.get(0).getKey());
+		assertEquals(2, matches.get(0).getDistance());
+
+		matches = tree.search("lst", 1);
+		assertEquals(1, matches.size());
+		assertEquals(2, matches.get(0).getValues().size());
+
+		assertTrue(tree.search("foobar", 2).isEmpty());
+		assertTrue(new BkTree<String>().search("list", 2).isEmpty());
+	}
+
+	@Test
+	public void search_matches_scan() {
+		Random random = new Random(2);
+		List<String> keys = new ArrayList<>();
+		BkTree<String> tree = new BkTree<>();
+		for (int i = 0; i < 2000; i++) {
+			String key = randomString(random, 3 + random.nextInt(6));
+			keys.add(key);
+			tree.add(key, key);
+		}
+
+		for (int i = 0; i < 200; i++) {
+			String query = randomString(random, 3 + random.nextInt(6));
+			Set<String> expected = new HashSet<>();
+			for (String key : keys) {
+				if (levenshtein(query, key) <= 2) {
+					expected.add(key);
+				}
+			}
+
+			Set<String> actual = new HashSet<>();
+			int prevDistance = 0;
+			for (BkTree.Match<String> match : tree.search(query, 2)) {
+				actual.add(match.getKey());
+				assertTrue(match.getDistance() >= prevDistance);
+				prevDistance = match.getDistance();
+			}
+			assertEquals(expected, actual);
+		}
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			//a small alphabet, so strings are often similar
+			sb.append((char) ('a' + random.nextInt(4)));
+		}
+		return sb.toString();
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= b.length(); j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
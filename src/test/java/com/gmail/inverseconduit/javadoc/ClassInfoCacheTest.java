@@ -0,0 +1,194 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ClassInfoCacheTest {
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	public void hits_and_misses() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		ClassInfo info = cache.get("foo.Bar", this::load);
+		assertSame(info, cache.get("foo.Bar", this::load));
+		assertEquals(1, loads.get());
+
+		ClassInfoCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(1, stats.getLoadCount());
+		assertEquals(1, stats.getSize());
+		assertEquals(ClassInfoCache.weigh(info), stats.getWeight());
+		assertEquals(0.5, stats.getHitRate(), 0.001);
+	}
+
+	@Test
+	public void not_found_not_cached() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		assertNull(cache.get("foo.Bar", name -> null));
+		assertNull(cache.get("foo.Bar", name -> null));
+		assertEquals(2, cache.getStats().getMissCount());
+		assertEquals(0, cache.getStats().getSize());
+	}
+
+	@Test
+	public void evicts_least_recently_used_by_weight() throws Exception {
+		long weight = ClassInfoCache.weigh(load("foo.A"));
+		ClassInfoCache cache = new ClassInfoCache(weight * 2);
+		cache.get("foo.A", this::load);
+		cache.get("foo.B", this::load);
+		cache.get("foo.A", this::load);
+
+		//evicts "B", since "A" was used more recently
+		cache.get("foo.C", this::load);
+		ClassInfoCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getEvictionCount());
+		assertEquals(2, stats.getSize());
+		assertTrue(stats.getWeight() <= stats.getMaxWeight());
+
+		int before = loads.get();
+		cache.get("foo.A", this::load);
+		assertEquals(before, loads.get());
+		cache.get("foo.B", this::load);
+		assertEquals(before + 1, loads.get());
+	}
+
+	@Test
+	public void weight() {
+		ClassInfo small = new ClassInfo.Builder().name("foo.A", "A").description("a").build();
+		ClassInfo large = new ClassInfo.Builder().name("foo.B", "B").description("a much longer description").method(new MethodInfo.Builder().name("b").description("b").build()).build();
+		assertTrue(ClassInfoCache.weigh(large) > ClassInfoCache.weigh(small));
+	}
+
+	@Test
+	public void reweigh() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		ClassInfo info = cache.get("foo.A", this::load);
+		long before = cache.getStats().getWeight();
+
+		info.setRendered(new RenderedDoc("**A**: ", "first\n\nsecond"));
+		info.setRenderedMethod("a()", new RenderedDoc("**a()**: ", "description"));
+		cache.reweigh(info);
+		assertTrue(cache.getStats().getWeight() > before);
+		assertEquals(ClassInfoCache.weigh(info), cache.getStats().getWeight());
+
+		//classes that are no longer cached are ignored
+		cache.invalidate(Arrays.asList("foo.A"));
+		cache.reweigh(info);
+		assertEquals(0, cache.getStats().getWeight());
+	}
+
+	@Test
+	public void reweigh_evicts() throws Exception {
+		long weight = ClassInfoCache.weigh(load("foo.A"));
+		ClassInfoCache cache = new ClassInfoCache(weight * 3);
+		ClassInfo a = cache.get("foo.A", this::load);
+		cache.get("foo.B", this::load);
+
+		//the rendered responses push the cache over budget, the least recently used class goes
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < weight / 4; i++) {
+			sb.append('x');
+		}
+		ClassInfo b = cache.get("foo.B", this::load);
+		b.setRendered(new RenderedDoc("", sb.toString()));
+		cache.reweigh(b);
+
+		ClassInfoCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getEvictionCount());
+		assertTrue(stats.getWeight() <= stats.getMaxWeight());
+		int before = loads.get();
+		assertSame(b, cache.get("foo.B", this::load));
+		assertNotSame(a, cache.get("foo.A", this::load));
+		assertEquals(before + 1, loads.get());
+	}
+
+	@Test
+	public void invalidate() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		cache.get("foo.A", this::load);
+		cache.get("foo.B", this::load);
+		cache.invalidate(Arrays.asList("foo.A", "foo.C"));
+		assertEquals(1, cache.getStats().getSize());
+
+		cache.get("foo.A", this::load);
+		assertEquals(3, loads.get());
+	}
+
+	private ClassInfo load(String fullName) {
+		loads.incrementAndGet();
+		return new ClassInfo.Builder().name(fullName, fullName.substring(fullName.lastIndexOf('.') + 1)).description("description").build();
+	}
+
+	@Test(timeout = 10000)
+	public void concurrent_misses_load_once() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		CountDownLatch loading = new CountDownLatch(1), release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<ClassInfo> first = executor.submit(() -> cache.get("foo.A", name -> {
+				loading.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return load(name);
+			}));
+			loading.await();
+
+			List<Future<ClassInfo>> others = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				others.add(executor.submit(() -> cache.get("foo.A", this::load)));
+			}
+
+			//other classes don't have to wait
+			assertEquals("foo.B", cache.get("foo.B", this::load).getName().getFullyQualified());
+
+			release.countDown();
+			ClassInfo info = first.get();
+			for (Future<ClassInfo> other : others) {
+				assertSame(info, other.get());
+			}
+			//one load for "foo.A", one for "foo.B"
+			assertEquals(2, loads.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void failed_load_is_rethrown() throws Exception {
+		ClassInfoCache cache = new ClassInfoCache(100000);
+		try {
+			cache.get("foo.A", name -> {
+				throw new IOException("broken");
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("broken", e.getMessage());
+		}
+
+		//failures are not cached
+		assertEquals("foo.A", cache.get("foo.A", this::load).getName().getFullyQualified());
+	}
+}
@@ -0,0 +1,101 @@
+package com.gmail.inverseconduit.javadoc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+/**
+ * Compares how long {@link ClassInfoXmlParser} (DOM and XPath) and
+ * {@link ClassInfoStaxParser} take to parse a class, and how long the method
+ * name scan that indexes a library takes. Not a unit test, run it
+ * with <tt>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.gmail.inverseconduit.javadoc.ClassInfoParserBenchmark
+ * [-Dexec.args="java8.zip java.lang.String"]</tt> or from the IDE. Without
+ * arguments, it parses the largest class of the test ZIP file.
+ * @author Michael Angstadt
+ */
+public class ClassInfoParserBenchmark {
+	private static final int WARMUP_ITERATIONS = 200, ITERATIONS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		Path file = (args.length > 0) ? Paths.get(args[0]) : Paths.get("src", "test", "resources", "com", "gmail", "inverseconduit", "javadoc", "LibraryZipFileTest.zip");
+		String className = (args.length > 1) ? args[1] : null;
+
+		byte[] xml;
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			ZipEntry entry = (className == null) ? largestEntry(zip) : zip.getEntry(className + ".xml");
+			if (entry == null) {
+				System.out.println("Class " + className + " not found in " + file + ".");
+				return;
+			}
+			className = entry.getName();
+			xml = read(zip, entry);
+		}
+
+		Callable<ClassInfo> dom = () -> {
+			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+			return new ClassInfoXmlParser(document, null).parse();
+		};
+		Callable<ClassInfo> stax = () -> new ClassInfoStaxParser(new ByteArrayInputStream(xml), null).parse();
+		Callable<Set<String>> methodNames = () -> new ClassInfoStaxParser(new ByteArrayInputStream(xml), null).parseMethodNames();
+
+		double domMicros = microsPerOp(dom);
+		double staxMicros = microsPerOp(stax);
+		double methodNamesMicros = microsPerOp(methodNames);
+
+		System.out.printf("%s (%d bytes, %d methods)%n", className, xml.length, stax.call().getMethods().size());
+		System.out.printf("DOM/XPath: %.1f us per parse%n", domMicros);
+		System.out.printf("StAX:      %.1f us per parse (%.1fx faster)%n", staxMicros, domMicros / staxMicros);
+		System.out.printf("Names:     %.1f us per method name scan (%.1fx faster than StAX)%n", methodNamesMicros, staxMicros / methodNamesMicros);
+	}
+
+	private static ZipEntry largestEntry(ZipFile zip) {
+		ZipEntry largest = null;
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (entry.getName().equals("info.xml")) {
+				continue;
+			}
+			if (largest == null || entry.getSize() > largest.getSize()) {
+				largest = entry;
+			}
+		}
+		return largest;
+	}
+
+	private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = zip.getInputStream(entry)) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static double microsPerOp(Callable<?> op) throws Exception {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			op.call();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			op.call();
+		}
+		return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+	}
+}
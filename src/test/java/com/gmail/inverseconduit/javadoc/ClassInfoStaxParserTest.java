@@ -0,0 +1,169 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ClassInfoStaxParserTest {
+	private final Path root = Paths.get("src", "test", "resources", "com", "gmail", "inverseconduit", "javadoc");
+
+	@Test
+	public void same_as_dom_parser() throws Exception {
+		int count = 0;
+		try (ZipFile zip = new ZipFile(root.resolve("LibraryZipFileTest.zip").toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.getName().equals("info.xml")) {
+					continue;
+				}
+
+				Document document;
+				try (InputStream in = zip.getInputStream(entry)) {
+					document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+				}
+				ClassInfo expected = new ClassInfoXmlParser(document, null).parse();
+
+				ClassInfo actual;
+				try (InputStream in = zip.getInputStream(entry)) {
+					actual = new ClassInfoStaxParser(in, null).parse();
+				}
+
+				assertClassInfo(expected, actual);
+				count++;
+			}
+		}
+		assertEquals(4, count);
+	}
+
+	@Test
+	public void nested_and_unknown_elements() throws Exception {
+		//@formatter:off
+		String xml =
+		"<class fullName=\"foo.Bar\" simpleName=\"Bar\">" +
+			"<unknown><description>ignored</description></unknown>" +
+			"<methods>" +
+				"<method name=\"baz\" returns=\"int\"><parameters><parameter type=\"java.util.List&lt;String&gt;...\" name=\"x\"><x/></parameter></parameters><description>one <b>two</b></description></method>" +
+			"</methods>" +
+			"<constructors><constructor modifiers=\"public\" /></constructors>" +
+			"<description>The <code>Bar</code> class.</description>" +
+		"</class>";
+		//@formatter:on
+
+		ClassInfo info = parse(xml);
+		assertEquals("The Bar class.", info.getDescription());
+
+		Iterator<MethodInfo> it = info.getMethods().iterator();
+		MethodInfo constructor = it.next();
+		assertEquals("Bar", constructor.getName());
+		assertEquals(0, constructor.getParameters().size());
+
+		MethodInfo method = it.next();
+		assertEquals("baz", method.getName());
+		assertEquals("one two", method.getDescription());
+		assertEquals("int baz(List<String>... x)", method.getSignatureString());
+		ParameterInfo parameter = method.getParameters().get(0);
+		assertEquals("java.util.List", parameter.getType().getFullyQualified());
+		assertEquals("<String>", parameter.getGeneric());
+		assertTrue(parameter.isVarargs());
+	}
+
+	@Test
+	public void method_names() throws Exception {
+		int count = 0;
+		try (ZipFile zip = new ZipFile(root.resolve("LibraryZipFileTest.zip").toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.getName().equals("info.xml")) {
+					continue;
+				}
+
+				Set<String> expected = new HashSet<>();
+				try (InputStream in = zip.getInputStream(entry)) {
+					for (MethodInfo method : new ClassInfoStaxParser(in, null).parse().getMethods()) {
+						expected.add(method.getName());
+					}
+				}
+
+				Set<String> actual;
+				try (InputStream in = zip.getInputStream(entry)) {
+					actual = new ClassInfoStaxParser(in, null).parseMethodNames();
+				}
+
+				assertEquals(entry.getName(), expected, actual);
+				count++;
+			}
+		}
+		assertEquals(4, count);
+
+		//@formatter:off
+		String xml =
+		"<class fullName=\"foo.Bar\" simpleName=\"Bar\">" +
+			"<unknown><method name=\"ignored\" /></unknown>" +
+			"<methods>" +
+				"<method name=\"baz\"><parameters><parameter type=\"int\" name=\"x\" /></parameters></method>" +
+				"<method name=\"baz\" />" +
+			"</methods>" +
+			"<constructors><constructor modifiers=\"public\" /></constructors>" +
+		"</class>";
+		//@formatter:on
+		assertEquals(new HashSet<>(Arrays.asList("Bar", "baz")), new ClassInfoStaxParser(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), null).parseMethodNames());
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void wrong_root() throws Exception {
+		parse("<foo />");
+	}
+
+	private static ClassInfo parse(String xml) throws XMLStreamException {
+		return new ClassInfoStaxParser(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), null).parse();
+	}
+
+	private static void assertClassInfo(ClassInfo expected, ClassInfo actual) {
+		assertEquals(expected.getName().getFullyQualified(), actual.getName().getFullyQualified());
+		assertEquals(expected.getName().getSimple(), actual.getName().getSimple());
+		assertEquals(String.valueOf(expected.getSuperClass()), String.valueOf(actual.getSuperClass()));
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(new ArrayList<>(expected.getModifiers()), new ArrayList<>(actual.getModifiers()));
+		assertEquals(expected.getInterfaces().toString(), actual.getInterfaces().toString());
+		assertEquals(expected.isDeprecated(), actual.isDeprecated());
+
+		List<MethodInfo> expectedMethods = new ArrayList<>(expected.getMethods());
+		List<MethodInfo> actualMethods = new ArrayList<>(actual.getMethods());
+		assertEquals(expectedMethods.size(), actualMethods.size());
+		for (int i = 0; i < expectedMethods.size(); i++) {
+			MethodInfo expectedMethod = expectedMethods.get(i);
+			MethodInfo actualMethod = actualMethods.get(i);
+			assertEquals(expectedMethod.getSignature(), actualMethod.getSignature());
+			assertEquals(expectedMethod.getSignatureString(), actualMethod.getSignatureString());
+			assertEquals(expectedMethod.getDescription(), actualMethod.getDescription());
+			assertEquals(new ArrayList<>(expectedMethod.getModifiers()), new ArrayList<>(actualMethod.getModifiers()));
+			assertEquals(expectedMethod.isDeprecated(), actualMethod.isDeprecated());
+			assertEquals(expectedMethod.getUrlAnchor(), actualMethod.getUrlAnchor());
+		}
+	}
+}
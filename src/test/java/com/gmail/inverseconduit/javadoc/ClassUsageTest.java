@@ -0,0 +1,82 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ClassUsageTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void beforeClass() {
+		//turn off logging
+		LogManager.getLogManager().reset();
+	}
+
+	@Test
+	public void getTop() {
+		ClassUsage usage = new ClassUsage();
+		usage.record("java.util.List");
+		usage.record("java.lang.String");
+		usage.record("java.lang.String");
+		usage.record("java.util.ArrayList");
+
+		assertEquals(Arrays.asList("java.lang.String", "java.util.ArrayList"), usage.getTop(2));
+		assertEquals(Arrays.asList("java.lang.String", "java.util.ArrayList", "java.util.List"), usage.getTop(10));
+		assertEquals(2, usage.getCount("java.lang.String"));
+		assertEquals(0, usage.getCount("java.lang.Object"));
+	}
+
+	@Test
+	public void save_load() throws Exception {
+		Path file = temporaryFolder.getRoot().toPath().resolve("usage.txt");
+
+		ClassUsage usage = new ClassUsage();
+		usage.save(file);
+		assertFalse(Files.exists(file));
+
+		usage.record("java.lang.String");
+		usage.record("java.lang.String");
+		usage.record("java.util.List");
+		usage.save(file);
+		assertEquals(Arrays.asList("2 java.lang.String", "1 java.util.List"), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+		ClassUsage loaded = new ClassUsage();
+		loaded.load(file);
+		loaded.record("java.util.List");
+		assertEquals(2, loaded.getCount("java.lang.String"));
+		assertEquals(2, loaded.getCount("java.util.List"));
+	}
+
+	@Test
+	public void load_invalid_lines() throws Exception {
+		Path file = temporaryFolder.getRoot().toPath().resolve("usage.txt");
+		Files.write(file, Arrays.asList("3 java.lang.String", "", "foo java.util.List", "java.util.Map"), StandardCharsets.UTF_8);
+
+		ClassUsage usage = new ClassUsage();
+		usage.load(file);
+		assertEquals(Arrays.asList("java.lang.String"), usage.getTop(10));
+	}
+
+	@Test
+	public void load_missing_file() throws Exception {
+		ClassUsage usage = new ClassUsage();
+		usage.load(temporaryFolder.getRoot().toPath().resolve("usage.txt"));
+		assertTrue(usage.getTop(10).isEmpty());
+	}
+}
@@ -100,6 +100,20 @@ public class CommandTextParserTest {
 		assertEquals(Arrays.asList("string"), parser.getParameters());
 	}
 
+	@Test
+	public void onMessage_no_class() {
+		CommandTextParser parser = new CommandTextParser("#parseInt");
+		assertEquals("", parser.getClassName());
+		assertEquals("parseInt", parser.getMethodName());
+		assertNull(parser.getParameters());
+
+		parser = new CommandTextParser("*#toUpperCase(char) 2");
+		assertEquals("*", parser.getClassName());
+		assertEquals("toUpperCase", parser.getMethodName());
+		assertEquals(2, parser.getParagraph());
+		assertEquals(Arrays.asList("char"), parser.getParameters());
+	}
+
 	@Test
 	public void onMessage_invalid_paragraph() {
 		CommandTextParser parser = new CommandTextParser("java.lang.string foo");
@@ -0,0 +1,81 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gmail.inverseconduit.SESite;
+import com.gmail.inverseconduit.datatype.ChatMessage;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavaDocAccessorTest {
+	private final Path root = Paths.get("src", "test", "resources", "com", "gmail", "inverseconduit", "javadoc");
+	private final ChatMessage message = new ChatMessage(SESite.STACK_OVERFLOW, 1, "Sandbox", "user", 1, "", 1);
+
+	@BeforeClass
+	public static void beforeClass() {
+		//turn off logging
+		LogManager.getLogManager().reset();
+	}
+
+	@Test
+	public void wildcard() throws Exception {
+		JavaDocAccessor accessor = new JavaDocAccessor(root);
+
+		String response = accessor.javadoc(message, "java.util.*");
+		assertEquals("@user Which one do you mean? (type the number)\n1. java.util.Collection\n2. java.util.List", response);
+
+		//single match
+		response = accessor.javadoc(message, "coll*");
+		assertTrue(response, response.contains("java.util.Collection"));
+		assertTrue(response, !response.contains("Which one"));
+
+		//wildcard in the middle
+		response = accessor.javadoc(message, "java.*.List");
+		assertEquals("@user Which one do you mean? (type the number)\n1. java.awt.List\n2. java.util.List", response);
+
+		response = accessor.javadoc(message, "Foo*");
+		assertEquals("@user Sorry, I never heard of that class. :(", response);
+	}
+
+	@Test
+	public void wildcard_ranked_by_popularity() throws Exception {
+		JavaDocAccessor accessor = new JavaDocAccessor(root);
+		accessor.javadoc(message, "java.util.List");
+		accessor.javadoc(message, "java.util.List#size");
+
+		String response = accessor.javadoc(message, "L*");
+		assertEquals("@user Which one do you mean? (type the number)\n1. java.util.List\n2. java.awt.List", response);
+	}
+
+	@Test
+	public void wildcard_choice_keeps_method() throws Exception {
+		JavaDocAccessor accessor = new JavaDocAccessor(root);
+		accessor.javadoc(message, "java.*.List#removeIf");
+
+		String response = accessor.showChoice(message, 2);
+		assertTrue(response, response.contains("removeIf"));
+	}
+
+	@Test
+	public void paging() throws Exception {
+		JavaDocAccessor accessor = new JavaDocAccessor(root);
+		String first = accessor.javadoc(message, "java.util.List");
+		assertTrue(first, first.contains("java.util.List"));
+
+		//repeat lookups give the same response
+		assertEquals(first, accessor.javadoc(message, "java.util.List"));
+
+		String second = accessor.javadoc(message, "java.util.List 2");
+		assertTrue(second, !second.contains("java.util.List"));
+		assertTrue(second, second.contains("(2/"));
+	}
+}
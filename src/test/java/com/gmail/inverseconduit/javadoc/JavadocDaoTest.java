@@ -1,8 +1,12 @@
 package com.gmail.inverseconduit.javadoc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -11,10 +15,15 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.LogManager;
 
 import org.junit.BeforeClass;
@@ -75,6 +84,80 @@ public class JavadocDaoTest {
 		}
 	}
 
+	@Test
+	public void getMethods() throws Exception {
+		ClassInfo list = dao.getClassInfo("java.util.List");
+		ClassInfo collection = dao.getClassInfo("java.util.Collection");
+
+		//overridden methods are returned once, the class's own version wins
+		List<MethodInfo> methods = dao.getMethods(list, "add");
+		assertEquals(2, methods.size());
+		for (MethodInfo method : methods) {
+			assertFalse(collection.getMethods().contains(method));
+		}
+
+		//inherited
+		methods = dao.getMethods(list, "REMOVEIF");
+		assertEquals(1, methods.size());
+		assertTrue(collection.getMethods().contains(methods.get(0)));
+
+		assertTrue(dao.getMethods(list, "foo").isEmpty());
+
+		//the table is built once
+		MethodTable table = list.getMethodTable();
+		assertNotNull(table);
+		dao.getMethods(list, "size");
+		assertSame(table, list.getMethodTable());
+		assertSame(collection.getMethodTable(), dao.getClassInfo("java.util.Collection").getMethodTable());
+	}
+
+	@Test
+	public void getMethods_weighed() throws Exception {
+		ClassInfo list = dao.getClassInfo("java.util.List");
+		ClassInfo collection = dao.getClassInfo("java.util.Collection");
+		long before = dao.getCacheStats().getWeight();
+
+		//the tables count towards the weight of their classes, including the inherited methods
+		dao.getMethods(list, "add");
+		long tables = ClassInfoCache.weigh(list.getMethodTable(), list) + ClassInfoCache.weigh(collection.getMethodTable(), collection);
+		assertEquals(before + tables, dao.getCacheStats().getWeight());
+	}
+
+	@Test
+	public void warmUp() throws Exception {
+		dao.warmUp(Arrays.asList("java.util.List", "java.lang.Foo")).get();
+
+		//the class and its ancestors are cached
+		assertEquals(2, dao.getCacheStats().getSize());
+		long loads = dao.getCacheStats().getLoadCount();
+		ClassInfo list = dao.getClassInfo("java.util.List");
+		assertEquals(1, dao.getMethods(list, "removeIf").size());
+		assertEquals(loads, dao.getCacheStats().getLoadCount());
+	}
+
+	@Test
+	public void findClassesByPrefix() throws Exception {
+		assertEquals(new HashSet<>(Arrays.asList("java.util.Collection")), dao.findClassesByPrefix("coll"));
+		assertEquals(new HashSet<>(Arrays.asList("java.util.Collection", "java.util.List")), dao.findClassesByPrefix("java.util."));
+		assertTrue(dao.findClassesByPrefix("foo").isEmpty());
+	}
+
+	@Test
+	public void findMethod() throws Exception {
+		assertEquals(new HashSet<>(Arrays.asList("java.awt.List", "java.util.Collection", "java.util.List")), new HashSet<>(dao.findMethod("ADD")));
+		assertEquals(new HashSet<>(Arrays.asList("java.util.Collection")), new HashSet<>(dao.findMethod("removeIf")));
+		assertTrue(dao.findMethod("foo").isEmpty());
+	}
+
+	@Test
+	public void suggestClasses() throws Exception {
+		assertEquals(Arrays.asList("java.util.Collection"), dao.suggestClasses("Colection", 5));
+		assertEquals(Arrays.asList("java.util.Collection"), dao.suggestClasses("java.util.colection", 5));
+		assertEquals(Arrays.asList("java.awt.List", "java.util.List"), dao.suggestClasses("Lst", 5));
+		assertEquals(Arrays.asList("java.awt.List"), dao.suggestClasses("Lst", 1));
+		assertEquals(Arrays.asList(), dao.suggestClasses("FooBar", 5));
+	}
+
 	@Test
 	public void fullName() throws Exception {
 		ClassInfo info = dao.getClassInfo("java.util.List");
@@ -176,4 +259,76 @@ public class JavadocDaoTest {
 		}
 		assertNull(info);
 	}
+
+	@Test
+	public void multiple_zip_files() throws Exception {
+		Path dir = temporaryFolder.getRoot().toPath();
+		Path source = root.resolve("LibraryZipFileTest.zip");
+		for (int i = 0; i < 4; i++) {
+			Files.copy(source, dir.resolve("library" + i + ".zip"));
+		}
+
+		JavadocDao dao = new JavadocDao(dir);
+
+		//the same class in several ZIP files is only found once
+		ClassInfo info = dao.getClassInfo("Collection");
+		assertEquals("java.util.Collection", info.getName().getFullyQualified());
+		assertEquals(Arrays.asList("java.util.Collection"), new ArrayList<>(dao.findMethod("removeIf")));
+	}
+
+	@Test
+	public void directory_watcher_modified_no_gap() throws Exception {
+		Path dir = temporaryFolder.getRoot().toPath();
+		Path source = root.resolve("LibraryZipFileTest.zip");
+		Path dest = dir.resolve("LibraryZipFileTest.zip");
+		Files.copy(source, dest);
+
+		Thread.sleep(1500); //wait a bit before modifying the file so the timestamp is significantly different (for Macs)
+
+		JavadocDao dao = new JavadocDao(dir);
+		ClassInfo before = dao.getClassInfo("java.util.Collection");
+		assertNotNull(before);
+
+		//look up an unchanged class the whole time the file is being reloaded
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Object> gap = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				try {
+					if (dao.getClassInfo("Collection") == null) {
+						gap.set("Class disappeared during reload.");
+					}
+				} catch (Exception e) {
+					gap.set(e);
+				}
+			}
+		});
+		reader.start();
+
+		//replace the file in one step (the ZIP file system deletes and recreates it)
+		Path modified = dir.resolve("LibraryZipFileTest.tmp");
+		Files.copy(source, modified);
+		try (FileSystem fs = FileSystems.newFileSystem(modified, (ClassLoader) null)) {
+			Path path = fs.getPath("java.util.List.xml");
+			Files.delete(path);
+		}
+		Files.move(modified, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		//wait for the WatchService to pick up the change
+		long start = System.currentTimeMillis();
+		ClassInfo info = dao.getClassInfo("java.util.List");
+		while (info != null && (System.currentTimeMillis() - start) < TimeUnit.SECONDS.toMillis(5)) {
+			Thread.sleep(200);
+			info = dao.getClassInfo("java.util.List");
+		}
+		done.set(true);
+		reader.join();
+
+		assertNull(info);
+		assertNull(gap.get());
+
+		//the cached class must not come from the closed ZIP file
+		ClassInfo after = dao.getClassInfo("java.util.Collection");
+		assertNotSame(before.getZipFile(), after.getZipFile());
+	}
 }
@@ -6,10 +6,15 @@ import static org.junit.Assert.assertNull;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -84,4 +89,22 @@ public class LibraryZipFileTest {
 		assertEquals("java.lang.Object", info.getName().getFullyQualified());
 		assertEquals("Object", info.getName().getSimple());
 	}
+
+	@Test
+	public void getClassInfo_concurrent() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ClassInfo>> futures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				String name = (i % 2 == 0) ? "java.util.List" : "java.lang.Object";
+				futures.add(executor.submit(() -> zip.getClassInfo(name)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				String name = (i % 2 == 0) ? "java.util.List" : "java.lang.Object";
+				assertEquals(name, futures.get(i).get().getName().getFullyQualified());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,35 @@
+package com.gmail.inverseconduit.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class RenderedDocTest {
+	@Test
+	public void one_paragraph() {
+		RenderedDoc doc = new RenderedDoc("header: ", "One.");
+		assertEquals(1, doc.getParagraphCount());
+		assertEquals("header: One.", doc.get(1));
+		assertEquals("header: One.", doc.get(2));
+	}
+
+	@Test
+	public void multiple_paragraphs() {
+		RenderedDoc doc = new RenderedDoc("header: ", "One.\n\nTwo.\n\nThree.");
+		assertEquals(3, doc.getParagraphCount());
+		assertEquals("header: One. (1/3)", doc.get(1));
+		assertEquals("Two. (2/3)", doc.get(2));
+		assertEquals("Three. (3/3)", doc.get(3));
+		assertEquals("Three. (3/3)", doc.get(4));
+	}
+
+	@Test
+	public void responses_are_reused() {
+		RenderedDoc doc = new RenderedDoc("header: ", "One.\n\nTwo.");
+		assertSame(doc.get(2), doc.get(2));
+	}
+}
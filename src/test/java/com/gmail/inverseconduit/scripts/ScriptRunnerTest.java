@@ -0,0 +1,399 @@
+package com.gmail.inverseconduit.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Writable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gmail.inverseconduit.SESite;
+import com.gmail.inverseconduit.datatype.ChatMessage;
+
+public class ScriptRunnerTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ScriptRunner runner = new ScriptRunner();
+
+    private final ChatMessage  message = new ChatMessage(SESite.STACK_OVERFLOW, 1, "Sandbox", "user", 42, "!!eval 1 + 1", 1234);
+
+    @Test
+    public void evaluate() {
+        assertEquals(":1234 [tag:groovy]: 2", runner.evaluateGroovy(message, "1 + 1"));
+        assertEquals(":1234 [tag:groovy]: no result", runner.evaluateGroovy(message, "null"));
+    }
+
+    @Test
+    public void compile_modes() {
+        assertEquals(":1234 [tag:groovy]: (static) 2", runner.evaluateGroovy(message, "int x = 1; x + 1", CompileMode.STATIC));
+        assertEquals(":1234 [tag:groovy]: (static) no result", runner.evaluateGroovy(message, "null", CompileMode.AUTO));
+
+        //variables of the binding don't type check
+        runner.evaluateGroovy(message, "y = 1");
+        String response = runner.evaluateGroovy(message, "y + 1", CompileMode.STATIC);
+        assertTrue(response, response.startsWith(":1234 [tag:groovy]: (static) compilation failed"));
+        assertEquals(":1234 [tag:groovy]: (dynamic) 2", runner.evaluateGroovy(message, "y + 1", CompileMode.AUTO));
+        assertEquals(":1234 [tag:groovy]: 2", runner.evaluateGroovy(message, "y + 1", CompileMode.DYNAMIC));
+    }
+
+    @Test
+    public void compile_mode_default() {
+        ScriptRunner runner = new ScriptRunner.Builder().compileMode(CompileMode.AUTO).build();
+        assertEquals(":1234 [tag:groovy]: (static) 2", runner.evaluateGroovy(message, "1 + 1"));
+    }
+
+    @Test
+    public void java_snippets() {
+        assertEquals(":1234 [tag:java]: 2", runner.evaluateJava(message, "1 + 1"));
+        assertEquals(":1234 [tag:java]: hi", runner.evaluateJava(message, "System.out.println(\"hi\");"));
+        assertEquals(":1234 [tag:java]: [1, 2]", runner.evaluateJava(message, "List<Integer> list = new ArrayList<>(); list.add(1); list.add(2); return list;"));
+        assertEquals(":1234 [tag:java]: no result", runner.evaluateJava(message, "int x = 1;"));
+        assertEquals(":1234 [tag:java]: System.out", runner.evaluateJava(message, "System.out.println(\"System.out\");"));
+        assertEquals(":1234 [tag:java]: a b System.err", runner.evaluateJava(message, "/* System.out */ System.out.print(\"a \"); System.err.print(\"b\"); return \"System.err\";"));
+
+        String response = runner.evaluateJava(message, "int x = \"a\";");
+        assertTrue(response, response.startsWith(":1234 [tag:java]: compilation failed with error line 1: incompatible types"));
+    }
+
+    @Test(timeout = 10000)
+    public void java_snippet_stays_in_method() {
+        //would spin in an initializer while the snippet is created
+        for (String snippet : Arrays.asList(
+                "return null; } { long e = System.nanoTime() + 15000000000L; while (System.nanoTime() < e) {} } public Object x() { if (true) return 1",
+                "return null; \\u007d { while (true) {} } { int x = 0;", "return null; }} class Other { static { while (true) {} } void x() {")) {
+            String response = runner.evaluateJava(message, snippet);
+            assertEquals(snippet, ":1234 [tag:java]: compilation failed with error line 1: the snippet may only contain the body of a method", response);
+        }
+
+        //braces in literals and comments don't count
+        assertEquals(":1234 [tag:java]: }}", runner.evaluateJava(message, "String s = \"}\\\"\"; char c = '}'; /* } */ // }\nreturn s.charAt(0) + \"\" + c;"));
+    }
+
+    @Test
+    public void java_snippet_cache() {
+        JavaSnippetCompiler compiler = new JavaSnippetCompiler(1);
+        Class<?> first = compiler.get("1 + 1");
+        assertSame(first, compiler.get("1 + 1"));
+
+        compiler.get("2 + 2");
+        assertNotSame(first, compiler.get("1 + 1"));
+    }
+
+    @Test(timeout = 20000)
+    public void runaway_java_snippet_stopped() throws Exception {
+        String response = runner.evaluateJava(message, "while (true) {}");
+        assertTrue(response, response.startsWith(":1234 [tag:java]: snippet cancelled"));
+
+        //Java snippets don't check for interrupts, so the thread keeps running
+        Thread.sleep(1500);
+        assertTrue(runner.hasRunawayScripts());
+    }
+
+    @Test(timeout = 20000)
+    public void runaway_script_stopped() throws Exception {
+        for (CompileMode mode : Arrays.asList(CompileMode.DYNAMIC, CompileMode.STATIC)) {
+            //cancelled by the sandbox, or by TimedInterrupt if the machine is busy
+            String response = runner.evaluate(1, "while (true) {}", mode);
+            assertTrue(response, response.contains("script cancelled") || response.contains("timed out"));
+        }
+
+        //the interrupt checks of both compiler configurations end the scripts
+        Thread.sleep(1500);
+        assertFalse(runner.hasRunawayScripts());
+    }
+
+    @Test
+    public void warmup() {
+        for (String script : ScriptRunner.DEFAULT_WARMUP) {
+            String response = runner.evaluate(-1, script, CompileMode.DYNAMIC);
+            assertFalse(response, response.contains("error"));
+        }
+
+        ScriptRunner runner = new ScriptRunner.Builder().warmup(Arrays.asList("x = 1", "x + 1"), 2).build();
+        runner.warmUp();
+        assertEquals(":1234 [tag:groovy]: 2", runner.evaluateGroovy(message, "1 + 1"));
+    }
+
+    @Test(timeout = 20000)
+    public void cancelled_script_does_not_share_binding() {
+        //keeps writing to the binding after it's cancelled, until the sandbox stops the thread
+        String response = runner.evaluateGroovy(message, "x = 0; while (true) { try { while (true) { x++ } } catch (Exception e) {} }");
+        assertTrue(response, response.startsWith(":1234 [tag:groovy]: script cancelled"));
+
+        response = runner.evaluateGroovy(message, "(1..2000).each { binding.setVariable('v' + it, it) }; x");
+        assertTrue(response, response.contains("No such property: x"));
+        assertEquals(":1234 [tag:groovy]: 2", runner.evaluateGroovy(message, "y = 2; y"));
+    }
+
+    @Test
+    public void evaluate_loaded_class() {
+        runner.evaluateAndCache("class Greeter { static String greet(String name) { 'Hello ' + name } }");
+        assertEquals(":1234 [tag:groovy]: Hello bot", runner.evaluateGroovy(message, "Greeter.greet('bot')"));
+    }
+
+    @Test
+    public void loaded_classes_persisted() throws Exception {
+        Path dir = temporaryFolder.getRoot().toPath();
+        ScriptRunner runner = new ScriptRunner.Builder().loadedScriptStore(new LoadedScriptStore(dir)).build();
+        runner.evaluateAndCache("class Greeter { static String greet(String name) { 'Hello ' + name } }");
+        runner.evaluateAndCache("class Shouter { static String shout(String name) { Greeter.greet(name).toUpperCase() } }");
+
+        //restored from bytecode
+        runner = new ScriptRunner.Builder().loadedScriptStore(new LoadedScriptStore(dir)).build();
+        assertEquals(":1234 [tag:groovy]: HELLO BOT", runner.evaluateGroovy(message, "Shouter.shout('bot')"));
+
+        //recompiled from source
+        Files.list(dir).filter(file -> file.toString().endsWith(".classes")).forEach(file -> file.toFile().delete());
+        runner = new ScriptRunner.Builder().loadedScriptStore(new LoadedScriptStore(dir)).build();
+        assertEquals(":1234 [tag:groovy]: HELLO BOT", runner.evaluateGroovy(message, "Shouter.shout('bot')"));
+        assertEquals(2, Files.list(dir).filter(file -> file.toString().endsWith(".classes")).count());
+    }
+
+    @Test
+    public void loaded_classes_recompiled_for_other_config() throws Exception {
+        Path dir = temporaryFolder.getRoot().toPath();
+        ScriptRunner runner = new ScriptRunner.Builder().loadedScriptStore(new LoadedScriptStore(dir)).build();
+        runner.evaluateAndCache("class Greeter { static String greet(String name) { 'Hello ' + name } }");
+        assertEquals(1, Files.list(dir).filter(file -> file.toString().endsWith(".classes")).count());
+
+        //the bytecode compiled without the AST checks is not reused
+        runner = new ScriptRunner.Builder().loadedScriptStore(new LoadedScriptStore(dir)).sandboxMode(SandboxMode.AST).build();
+        assertEquals(":1234 [tag:groovy]: Hello bot", runner.evaluateGroovy(message, "Greeter.greet('bot')"));
+        assertEquals(2, Files.list(dir).filter(file -> file.toString().endsWith(".classes")).count());
+    }
+
+    @Test
+    public void variables_per_user() {
+        ChatMessage other = new ChatMessage(SESite.STACK_OVERFLOW, 1, "Sandbox", "other", 43, "", 1235);
+        runner.evaluateGroovy(message, "x = 5");
+        runner.evaluateGroovy(other, "x = 6");
+        assertEquals(":1234 [tag:groovy]: 5", runner.evaluateGroovy(message, "x"));
+        assertEquals(":1235 [tag:groovy]: 6", runner.evaluateGroovy(other, "x"));
+    }
+
+    @Test
+    public void variable_cap() {
+        ScriptContexts contexts = new ScriptContexts(2, 2, Long.MAX_VALUE, 60000);
+        ScriptContexts.ScriptContext context = contexts.acquire(1);
+        context.getBinding().setVariable("a", 1);
+        context.getBinding().setVariable("b", 2);
+        context.release();
+
+        //too many variables drop the whole context
+        context = contexts.acquire(1);
+        assertTrue(context.getBinding().hasVariable("b"));
+        context.getBinding().setVariable("c", 3);
+        context.release();
+        assertTrue(contexts.acquire(1).getBinding().getVariables().isEmpty());
+        contexts.remove(1);
+
+        //least recently used contexts are dropped
+        contexts.acquire(2).release();
+        contexts.acquire(3).release();
+        assertEquals(2, contexts.size());
+        assertTrue(contexts.acquire(1).getBinding().getVariables().isEmpty());
+    }
+
+    @Test
+    public void retained_cap() {
+        ScriptContexts contexts = new ScriptContexts(2, 32, 1024 * 1024, 60000);
+        ScriptContexts.ScriptContext context = contexts.acquire(1);
+        context.getBinding().setVariable("a", new byte[500000]);
+        assertNull(context.release());
+
+        context = contexts.acquire(1);
+        assertTrue(context.getBinding().hasVariable("a"));
+        context.getBinding().setVariable("b", Arrays.asList(new byte[300000], new byte[300000]));
+        assertEquals("they take up more than 1MB", context.release());
+        assertTrue(contexts.acquire(1).getBinding().getVariables().isEmpty());
+    }
+
+    @Test
+    public void large_variable_dropped() {
+        //retaining a large array keeps the user's variables from surviving the eval
+        runner.evaluateGroovy(message, "x = 5");
+        String response = runner.evaluateGroovy(message, "big = new byte[64 * 1024 * 1024]; 1");
+        assertEquals(":1234 [tag:groovy]: 1 (your variables were dropped, they take up more than 32MB)", response);
+        response = runner.evaluateGroovy(message, "x");
+        assertTrue(response, response.contains("No such property: x"));
+    }
+
+    @Test
+    public void garbage_does_not_drop_variables() {
+        runner.evaluateGroovy(message, "x = 5");
+        for (int i = 0; i < 3; i++) {
+            runner.evaluateGroovy(message, "(1..50).collect { new byte[1024 * 1024] }.size()");
+        }
+        assertEquals(":1234 [tag:groovy]: 5", runner.evaluateGroovy(message, "x"));
+    }
+
+    @Test
+    public void output() {
+        assertEquals(":1234 [tag:groovy]: hi 2", runner.evaluateGroovy(message, "println 'hi'; 1 + 1"));
+    }
+
+    @Test
+    public void output_truncated() {
+        String response = runner.evaluateGroovy(message, "while (true) { print 'a' }");
+        assertTrue(response, response.startsWith(":1234 [tag:groovy]: aaaa"));
+        assertTrue(response, response.length() < 600);
+    }
+
+    @Test
+    public void result_rendering() {
+        assertEquals(":1234 [tag:groovy]: [1, 2, 3]", runner.evaluateGroovy(message, "[1, 2, 3] as int[]"));
+        assertEquals(":1234 [tag:groovy]: [a:1, b:[2, 3]]", runner.evaluateGroovy(message, "[a: 1, b: [2, 3]]"));
+        assertEquals(":1234 [tag:groovy]: [:]", runner.evaluateGroovy(message, "[:]"));
+
+        //Java snippets are rendered the way Java prints them
+        assertEquals(":1234 [tag:java]: {a=1, b=[2, 3]}", runner.evaluateJava(message, "Map<String, Object> map = new LinkedHashMap<>(); map.put(\"a\", 1); map.put(\"b\", Arrays.asList(2, 3)); return map;"));
+        assertEquals(":1234 [tag:java]: {}", runner.evaluateJava(message, "new HashMap<String, Integer>()"));
+        assertEquals("{1=1, 2=2, ... (8 more)}", ResultRenderer.render(numbers(10), 30, ResultRenderer.Syntax.JAVA));
+
+        String response = runner.evaluateGroovy(message, "(1..10000000).toList()");
+        assertTrue(response, response.startsWith(":1234 [tag:groovy]: [1, 2, 3, "));
+        assertTrue(response, response.endsWith(" more)]"));
+        assertTrue(response, response.length() < 600);
+    }
+
+    @Test
+    public void result_rendering_bounded() {
+        assertEquals("[1, 2, 3, ... (7 more)]", ResultRenderer.render(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 30));
+        assertEquals("abc...", ResultRenderer.render("abcdef", 3));
+
+        //writables are stopped once the budget is full
+        assertEquals("abcabcabca...", ResultRenderer.render((Writable) writer -> {
+            while (true) {
+                writer.write("abc");
+            }
+        }, 10));
+
+        //nested collections are summarized at each level
+        String rendered = ResultRenderer.render(Collections.nCopies(1000000, Collections.nCopies(1000000, 1)), 50);
+        assertTrue(rendered, rendered.startsWith("[[1, 1, "));
+        assertTrue(rendered, rendered.length() <= 53);
+    }
+
+    @Test(timeout = 20000)
+    public void runaway_script_cancelled() {
+        String response = runner.evaluateGroovy(message, "while (true) {}");
+        assertTrue(response, response.startsWith(":1234 [tag:groovy]: script cancelled"));
+    }
+
+    @Test(timeout = 20000)
+    public void allocation_cancelled() {
+        String response = runner.evaluateGroovy(message, "def list = []; while (true) { list << new byte[1024 * 1024] }");
+        assertTrue(response, response.contains("cancelled") || response.contains("OutOfMemory"));
+    }
+
+    @Test
+    public void ast_sandbox() {
+        ScriptRunner runner = new ScriptRunner.Builder().sandboxMode(SandboxMode.AST).build();
+        assertEquals(":1234 [tag:groovy]: hi [1, 4, 9]", runner.evaluateGroovy(message, "println 'hi'; [1, 2, 3].collect { it * it }"));
+        assertEquals(":1234 [tag:groovy]: 3", runner.evaluateGroovy(message, "import java.util.stream.*; IntStream.range(0, 3).count()"));
+        assertEquals(":1234 [tag:groovy]: (static) 2", runner.evaluateGroovy(message, "1 + 1", CompileMode.STATIC));
+        runner.evaluateAndCache("class Greeter { static String greet(String name) { 'Hello ' + name } }");
+        assertEquals(":1234 [tag:groovy]: Hello bot", runner.evaluateGroovy(message, "Greeter.greet('bot')"));
+
+        for (String script : Arrays.asList("Runtime.getRuntime().exec('ls')", "'ls'.execute()", "System.exit(0)", "java.lang.System.exit(0)", "1.getClass().forName('java.io.File')",
+                "1.class", "'x'.\"${'getClass'}\"()", "new File('/')", "new java.io.File('/').text", "System.getenv()", "Thread.currentThread()",
+                "import java.nio.file.*; Paths.get('/')", "Thread.start {}", "this.binding.@variables",
+                "@groovy.transform.ASTTest(value = { System.exit(0) }) def x = 1", "@Grab('a:b:1') import java.util.List; 1")) {
+            String response = runner.evaluateGroovy(message, script);
+            assertTrue(script + " -> " + response, response.startsWith(":1234 [tag:groovy]: compilation failed"));
+        }
+
+        assertTrue(runner.evaluateJava(message, "1 + 1").contains("security manager"));
+    }
+
+    @Test
+    public void ast_sandbox_files() throws Exception {
+        ScriptRunner runner = new ScriptRunner.Builder().sandboxMode(SandboxMode.AST).build();
+        Path file = temporaryFolder.getRoot().toPath().resolve("pwned.txt");
+
+        //classes in whitelisted packages that open files by name
+        for (String script : Arrays.asList("new Formatter('" + file + "').format('owned').close(); 'done'", "Formatter f = ['" + file + "']; f.close()",
+                "(['" + file + "'] as Formatter).close()", "import java.util.*; new Formatter('" + file + "').close()", "new Scanner('a b').next()",
+                "new java.util.Properties().size()", "'x'.toPath()", "'x'.withWriter { it << 'owned' }")) {
+            String response = runner.evaluateGroovy(message, script);
+            assertTrue(script + " -> " + response, response.startsWith(":1234 [tag:groovy]: compilation failed"));
+        }
+        assertFalse(Files.exists(file));
+
+        assertEquals(":1234 [tag:groovy]: 3", runner.evaluateGroovy(message, "String.format('%d', 3)"));
+        assertEquals(":1234 [tag:groovy]: 2020-01-02", runner.evaluateGroovy(message, "java.time.LocalDate.of(2020, 1, 1).plusDays(1).toString()"));
+
+        //classes may only extend whitelisted classes
+        runner.evaluateAndCache("class Numbers extends ArrayList { static int one() { 1 } }");
+        try {
+            runner.evaluateAndCache("class Counter extends java.util.concurrent.atomic.AtomicInteger { static int one() { 1 } }");
+            fail();
+        } catch(CompilationFailedException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("may not extend or implement java.util.concurrent.atomic.AtomicInteger"));
+        }
+    }
+
+    @Test
+    public void ast_sandbox_subscripts() {
+        ScriptRunner runner = new ScriptRunner.Builder().sandboxMode(SandboxMode.AST).build();
+        assertEquals(":1234 [tag:groovy]: 3", runner.evaluateGroovy(message, "def m = [a: 1]; def k = 'a'; m[k] + [1, 2, 3][k.size()]"));
+        assertEquals(":1234 [tag:groovy]: (static) 3", runner.evaluateGroovy(message, "def m = [a: 1]; def k = 'a'; m[k] + [1, 2, 3][k.size()]", CompileMode.STATIC));
+        assertEquals(":1234 [tag:groovy]: b", runner.evaluateGroovy(message, "def m = [:]; def k = \"${'a'}\"; m[k] = 'b'; m.a"));
+
+        //reads the class through a subscript and runs a command through its meta class
+        String exploit = "def c = ''['class']['class']; def forName = c.metaClass.getStaticMetaMethod('forName', [String] as Object[]); "
+                + "def runtime = forName.doMethodInvoke(null, ['java.lang.Runtime'] as Object[]); "
+                + "runtime.metaClass.getStaticMetaMethod('getRuntime', [] as Object[]).doMethodInvoke(null, [] as Object[]).exec('ls')";
+        for (String script : Arrays.asList(exploit, "''['class']", "''['metaClass']", "def m = [:]; m['metaClass'] = null", "''.getAt('class')",
+                "''.metaClass.getMetaMethod('toString', [] as Object[])", "1.respondsTo('toString')[0].doMethodInvoke(1, [] as Object[])",
+                "''.hasProperty('bytes').getGetter()", "String.pickMethod('valueOf', [Object] as Class[])")) {
+            String response = runner.evaluateGroovy(message, script);
+            assertTrue(script + " -> " + response, response.startsWith(":1234 [tag:groovy]: compilation failed"));
+        }
+
+        //keys computed at run time are checked when the script runs
+        for (String script : Arrays.asList("def k = 'cla' + 'ss'; ''[k]", "''[\"${'cla'}ss\"]", "['class'].collect { ''[it] }", "def k = 'class'; [''][k]",
+                "def k = 'metaClass'; def m = [:]; m[k] = null")) {
+            String response = runner.evaluateGroovy(message, script);
+            assertTrue(script + " -> " + response, response.contains("is not allowed"));
+        }
+    }
+
+    @Test
+    public void cache() {
+        CompiledScriptCache cache = new CompiledScriptCache(getClass().getClassLoader(), new CompilerConfiguration(), 1);
+        Class<?> first = cache.get(new GroovyCodeSource("1 + 1", "UserScript", "/sandboxScript"));
+        assertSame(first, cache.get(new GroovyCodeSource("1 + 1", "UserScript", "/sandboxScript")));
+
+        //evicts the least recently used script
+        cache.get(new GroovyCodeSource("2 + 2", "UserScript", "/sandboxScript"));
+        assertNotSame(first, cache.get(new GroovyCodeSource("1 + 1", "UserScript", "/sandboxScript")));
+    }
+
+    private static Map<Integer, Integer> numbers(int count) {
+        Map<Integer, Integer> map = new LinkedHashMap<>();
+        for (int i = 1; i <= count; i++) {
+            map.put(i, i);
+        }
+        return map;
+    }
+}
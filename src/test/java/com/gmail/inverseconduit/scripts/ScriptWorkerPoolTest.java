@@ -0,0 +1,70 @@
+package com.gmail.inverseconduit.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ScriptWorkerPoolTest {
+
+    private final ScriptWorkerPool pool = new ScriptWorkerPool(1, 2, 64);
+
+    @After
+    public void after() {
+        pool.shutdown();
+    }
+
+    @Test(timeout = 60000)
+    public void evaluate() {
+        assertEquals("2", pool.evaluate(1, "1 + 1", CompileMode.DYNAMIC));
+        assertEquals("hi", pool.evaluate(1, "println 'hi'", CompileMode.DYNAMIC));
+        assertEquals("(static) 2", pool.evaluate(1, "1 + 1", CompileMode.STATIC));
+        assertEquals("2", pool.evaluateJava("1 + 1"));
+    }
+
+    @Test(timeout = 60000)
+    public void busy() throws Exception {
+        assertEquals("2", pool.evaluate(1, "1 + 1", CompileMode.DYNAMIC));
+
+        Thread slow = new Thread(() -> pool.evaluate(1, "sleep 3000", CompileMode.DYNAMIC));
+        slow.start();
+        Thread.sleep(500);
+
+        //fails right away instead of waiting for the worker
+        long start = System.currentTimeMillis();
+        assertEquals("all script workers are busy, try again later", pool.evaluate(2, "1 + 1", CompileMode.DYNAMIC));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        slow.join();
+    }
+
+    @Test(timeout = 60000)
+    public void no_workers() {
+        //a heap this small keeps the workers from starting
+        ScriptWorkerPool pool = new ScriptWorkerPool(1, 2, 1);
+        try {
+            assertEquals("no script workers available, try again later", pool.evaluate(1, "1 + 1", CompileMode.DYNAMIC));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void recycled_workers_get_loaded_classes() {
+        pool.load("class Greeter { static String greet(String name) { 'Hello ' + name } }");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Hello bot", pool.evaluate(1, "Greeter.greet('bot')", CompileMode.DYNAMIC));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void ast_sandbox() {
+        ScriptWorkerPool pool = new ScriptWorkerPool(1, 2, 64, SandboxMode.AST);
+        try {
+            assertEquals("2", pool.evaluate(1, "1 + 1", CompileMode.DYNAMIC));
+            assertTrue(pool.evaluate(1, "'ls'.execute()", CompileMode.DYNAMIC).startsWith("compilation failed"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.gmail.inverseconduit.security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.security.AllPermission;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+
+import org.junit.Test;
+
+public class ScriptSecurityPolicyTest {
+
+    private final ScriptSecurityPolicy policy = ScriptSecurityPolicy.getInstance();
+
+    @Test
+    public void sandboxed() throws Exception {
+        CodeSource script = new CodeSource(new URL("file", "", "/sandboxScript"), (Certificate[]) null);
+        assertTrue(ScriptSecurityPolicy.isSandboxed(script));
+        assertFalse(policy.implies(new ProtectionDomain(script, null), new AllPermission()));
+        assertFalse(policy.getPermissions(script).implies(new AllPermission()));
+    }
+
+    @Test
+    public void trusted() throws Exception {
+        CodeSource bot = getClass().getProtectionDomain().getCodeSource();
+        assertFalse(ScriptSecurityPolicy.isSandboxed(bot));
+        assertFalse(ScriptSecurityPolicy.isSandboxed(null));
+        assertTrue(policy.implies(getClass().getProtectionDomain(), new AllPermission()));
+        assertTrue(policy.implies(new ProtectionDomain(null, null), new AllPermission()));
+    }
+}
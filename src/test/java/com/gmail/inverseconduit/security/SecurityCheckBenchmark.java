@@ -0,0 +1,65 @@
+package com.gmail.inverseconduit.security;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Policy;
+import java.util.concurrent.Callable;
+
+import com.gmail.inverseconduit.javadoc.LibraryZipFile;
+
+/**
+ * Measures what the security manager costs the bot's hot paths, by running
+ * them without and then with {@link ScriptSecurityManager} and
+ * {@link ScriptSecurityPolicy} installed. Not a unit test, run it with
+ * <tt>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.gmail.inverseconduit.security.SecurityCheckBenchmark</tt>
+ * or from the IDE.
+ */
+public class SecurityCheckBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000, ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get("src", "test", "resources", "com", "gmail", "inverseconduit", "javadoc", "LibraryZipFileTest.zip");
+
+        //roughly the checks of a chat poll: HtmlUnit reads system properties and opens a connection
+        Callable<Object> chatPoll = () -> {
+            SecurityManager securityManager = System.getSecurityManager();
+            if (securityManager != null) {
+                securityManager.checkConnect("chat.stackoverflow.com", 443);
+            }
+            return System.getProperty("http.proxyHost");
+        };
+        //the file access of opening a javadoc library
+        Callable<Object> javadocLookup = () -> {
+            try (LibraryZipFile zip = new LibraryZipFile(file)) {
+                return zip.getName();
+            }
+        };
+
+        long pollWithout = nanosPerOp(chatPoll);
+        long lookupWithout = nanosPerOp(javadocLookup);
+
+        Policy.setPolicy(ScriptSecurityPolicy.getInstance());
+        System.setSecurityManager(ScriptSecurityManager.getInstance());
+
+        long pollWith = nanosPerOp(chatPoll);
+        long lookupWith = nanosPerOp(javadocLookup);
+
+        System.out.printf("%-16s %16s %16s%n", "", "no manager", "with manager");
+        System.out.printf("%-16s %13d ns %13d ns%n", "chat poll", pollWithout, pollWith);
+        System.out.printf("%-16s %13d ns %13d ns%n", "javadoc lookup", lookupWithout, lookupWith);
+    }
+
+    private static long nanosPerOp(Callable<Object> operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.call();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.call();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}